@@ -0,0 +1,10 @@
+#!/bin/sh
+# Starts the AOT-processed application with the AppCDS archive recorded at build time.
+# Profiles are fixed at build time (AOT), override with -Dfast-start.profiles when packaging.
+# The classpath must stay exactly as in the training run or the JVM ignores the archive.
+cd "$(dirname "$0")" || exit 1
+CDS=""
+if [ -f school.jsa ]; then
+  CDS="-XX:SharedArchiveFile=school.jsa"
+fi
+exec java $CDS -Dspring.aot.enabled=true -Dspring.profiles.active=@fast-start.profiles@ $JAVA_OPTS -cp "@fast-start.jar@:lib/*" ru.hogwarts.school.SchoolApplication "$@"
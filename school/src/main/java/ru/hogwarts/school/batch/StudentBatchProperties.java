@@ -0,0 +1,72 @@
+package ru.hogwarts.school.batch;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("school.student-batch")
+public class StudentBatchProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * A batch is flushed as soon as it holds this many students...
+     */
+    private int maxBatchSize = 100;
+
+    /**
+     * ...or once the first student in it has waited this long.
+     */
+    private Duration linger = Duration.ofMillis(5);
+
+    /**
+     * Creates beyond this backlog bypass batching and commit on the caller's thread.
+     */
+    private int queueCapacity = 2000;
+
+    /**
+     * How long a caller waits for its batch to commit. A caller that gives up gets a 503,
+     * although its student may still be written afterwards.
+     */
+    private Duration resultTimeout = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getLinger() {
+        return linger;
+    }
+
+    public void setLinger(Duration linger) {
+        this.linger = linger;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getResultTimeout() {
+        return resultTimeout;
+    }
+
+    public void setResultTimeout(Duration resultTimeout) {
+        this.resultTimeout = resultTimeout;
+    }
+}
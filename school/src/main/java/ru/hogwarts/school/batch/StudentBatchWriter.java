@@ -0,0 +1,329 @@
+package ru.hogwarts.school.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.event.EntityChangedEvent;
+import ru.hogwarts.school.exception.FacultyNotFoundException;
+import ru.hogwarts.school.exception.StudentBatchUnavailableException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.service.StudentService;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for {@code POST /student}: concurrent creates are queued and a single
+ * flusher thread writes them in one transaction with one JDBC batch insert, flushing
+ * when {@code maxBatchSize} students are waiting or the oldest has waited {@code linger}.
+ * Every caller still gets its own generated id or its own exception: a missing faculty
+ * fails only that student, and a failed batch is retried one student per transaction.
+ * Callers wait at most {@code resultTimeout}; students the writer can no longer commit
+ * (it was interrupted or stopped) fail with {@link StudentBatchUnavailableException}.
+ */
+public class StudentBatchWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentBatchWriter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO students (name, age, faculty_id, version, updated_at) VALUES (?, ?, ?, 0, ?)";
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final StudentBatchProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FacultyRepository facultyRepository;
+    private final StudentService studentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<PendingStudent> queue;
+    private final DistributionSummary batchSize;
+    private final Timer flushTime;
+    private final Counter bypassed;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public StudentBatchWriter(StudentBatchProperties properties, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate, FacultyRepository facultyRepository,
+                              StudentService studentService, ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry) {
+        if (properties.getMaxBatchSize() < 1) {
+            throw new IllegalArgumentException("school.student-batch.max-batch-size must be positive");
+        }
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.facultyRepository = facultyRepository;
+        this.studentService = studentService;
+        this.eventPublisher = eventPublisher;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        if (meterRegistry != null) {
+            this.batchSize = DistributionSummary.builder("school.student.batch.size")
+                    .description("Students written per group commit")
+                    .register(meterRegistry);
+            this.flushTime = Timer.builder("school.student.batch.flush")
+                    .description("Time to write and commit one batch of students")
+                    .register(meterRegistry);
+            this.bypassed = Counter.builder("school.student.batch.bypassed")
+                    .description("Creates committed on the caller's thread because the batch queue was full")
+                    .register(meterRegistry);
+            Gauge.builder("school.student.batch.queued", queue, Collection::size)
+                    .register(meterRegistry);
+        } else {
+            this.batchSize = null;
+            this.flushTime = null;
+            this.bypassed = null;
+        }
+    }
+
+    /**
+     * Same contract as {@link StudentService#createStudent(Student)}; blocks until the
+     * batch holding this student has committed, or {@code resultTimeout} has passed.
+     */
+    public Student createStudent(Student student) {
+        if (student == null) {
+            throw new IllegalArgumentException("Student cannot be null");
+        }
+        PendingStudent pending = new PendingStudent(student, new CompletableFuture<>());
+        if (!running || !queue.offer(pending) || (!running && queue.remove(pending))) {
+            logger.debug("Batch queue unavailable, creating student on the caller's thread");
+            if (bypassed != null) {
+                bypassed.increment();
+            }
+            return studentService.createStudent(student);
+        }
+        long timeoutMillis = properties.getResultTimeout().toMillis();
+        try {
+            return pending.result().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            logger.warn("Batched create did not commit within {} ms", timeoutMillis);
+            throw new StudentBatchUnavailableException(
+                    "Student was not committed within " + timeoutMillis + " ms, it may still be created");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new StudentBatchUnavailableException("Interrupted while waiting for the student to be committed");
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::drain, "student-batch-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            try {
+                // queued students are still written before the thread exits
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        int maxBatchSize = properties.getMaxBatchSize();
+        long lingerNanos = properties.getLinger().toNanos();
+        List<PendingStudent> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingStudent first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingStudent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // polling again would throw straight away, so give up on the batch and the queue
+                Thread.currentThread().interrupt();
+                running = false;
+                logger.warn("Student batch writer interrupted with {} students in the batch", batch.size());
+                fail(batch, "Student batch writer was interrupted");
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected failure while writing a batch of {} students", batch.size(), e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        List<PendingStudent> left = new ArrayList<>();
+        queue.drainTo(left);
+        fail(left, "Student batch writer stopped");
+    }
+
+    private static void fail(List<PendingStudent> pending, String message) {
+        pending.forEach(student -> student.result().completeExceptionally(new StudentBatchUnavailableException(message)));
+    }
+
+    private void flush(List<PendingStudent> batch) {
+        long started = System.nanoTime();
+        List<Student> created;
+        try {
+            created = transactionTemplate.execute(status -> write(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                logger.warn("Batch insert of {} students failed ({}), retrying one by one", batch.size(), e.toString());
+                for (PendingStudent pending : batch) {
+                    flush(List.of(pending));
+                }
+                return;
+            }
+            recordFlush(batch, started);
+            batch.get(0).result().completeExceptionally(e);
+            return;
+        }
+        // recorded before the callers are released, so a caller that has its student sees the batch counted
+        recordFlush(batch, started);
+        complete(batch, created);
+    }
+
+    private void recordFlush(List<PendingStudent> batch, long started) {
+        if (batchSize != null) {
+            batchSize.record(batch.size());
+            flushTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        logger.debug("Group commit of {} students took {} ms", batch.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Returns the created students in batch order, null where that student failed validation
+     * (its future is already completed exceptionally).
+     */
+    private List<Student> write(List<PendingStudent> batch) {
+        Set<Long> facultyIds = batch.stream()
+                .map(pending -> facultyIdOf(pending.student()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Faculty> faculties = facultyIds.isEmpty() ? Map.of()
+                : facultyRepository.findSummariesByIdIn(facultyIds).stream()
+                .collect(Collectors.toMap(Faculty::getId, Function.identity()));
+
+        List<Student> created = new ArrayList<>(Collections.nCopies(batch.size(), null));
+        List<Integer> rows = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Student requested = batch.get(i).student();
+            Long facultyId = facultyIdOf(requested);
+            Faculty faculty = facultyId == null ? null : faculties.get(facultyId);
+            if (facultyId != null && faculty == null) {
+                logger.error("Faculty not found with id: {}", facultyId);
+                batch.get(i).result().completeExceptionally(
+                        new FacultyNotFoundException("Faculty not found with id: " + facultyId));
+                continue;
+            }
+            created.set(i, new Student(null, requested.getName(), requested.getAge(), faculty));
+            rows.add(i);
+        }
+        if (rows.isEmpty()) {
+            return created;
+        }
+
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Student student = created.get(rows.get(i));
+                        ps.setString(1, student.getName());
+                        ps.setInt(2, student.getAge());
+                        if (student.getFaculty() != null) {
+                            ps.setLong(3, student.getFaculty().getId());
+                        } else {
+                            ps.setNull(3, Types.BIGINT);
+                        }
+                        ps.setObject(4, now);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        if (keyList.size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " generated ids, got " + keyList.size());
+        }
+        for (int k = 0; k < rows.size(); k++) {
+            Student student = created.get(rows.get(k));
+            student.setId(((Number) keyList.get(k).values().iterator().next()).longValue());
+            student.setVersion(0L);
+            student.setUpdatedAt(now.toInstant());
+            eventPublisher.publishEvent(new EntityChangedEvent(
+                    EntityChangedEvent.Entity.STUDENT, EntityChangedEvent.Change.CREATED, student.getId()));
+        }
+        return created;
+    }
+
+    private static void complete(List<PendingStudent> batch, List<Student> created) {
+        for (int i = 0; i < batch.size(); i++) {
+            Student student = created.get(i);
+            if (student != null) {
+                batch.get(i).result().complete(student);
+            }
+        }
+    }
+
+    private static Long facultyIdOf(Student student) {
+        return student.getFaculty() != null ? student.getFaculty().getId() : null;
+    }
+
+    private record PendingStudent(Student student, CompletableFuture<Student> result) {
+    }
+}
@@ -0,0 +1,280 @@
+package ru.hogwarts.school.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.datasource.PrimaryReads;
+import ru.hogwarts.school.dto.StudentSnapshotRow;
+import ru.hogwarts.school.event.EntityChangedEvent;
+import ru.hogwarts.school.event.ResyncRequiredEvent;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Columnar in-memory copies of the students and faculties tables for the analytical
+ * endpoints, which would otherwise load every row as an entity.
+ * <p>
+ * Each snapshot is loaded on first use and replaced, never modified, so readers take the
+ * current one without locking. A committed student change only queues the student's id; a
+ * single background thread re-reads the queued rows in one read-write transaction, which
+ * routing always sends to the primary, and publishes one patched snapshot for all of them,
+ * so the snapshot trails the table by about one round trip. A faculty change drops the
+ * faculty snapshot to be reloaded. Changes committed while the students are being loaded
+ * are queued once the load finishes. A {@link ResyncRequiredEvent} drops both. Loads are
+ * read from the primary ({@link PrimaryReads}) as well.
+ */
+@Component
+public class AnalyticsSnapshot implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsSnapshot.class);
+
+    private static final int MAX_PATCH_BATCH = 1000;
+
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final TransactionTemplate loadTemplate;
+    private final TransactionTemplate patchTemplate;
+    private final ExecutorService worker;
+    private final boolean enabled;
+
+    private final Object patchLock = new Object();
+    private final Object facultyLock = new Object();
+    private final Set<Long> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingPatches = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean patchScheduled = new AtomicBoolean();
+    private final AtomicBoolean loadScheduled = new AtomicBoolean();
+    private volatile boolean loading;
+    // bumped whenever a snapshot is dropped, so a load that started before is not published
+    private volatile long studentGeneration;
+    private volatile long facultyGeneration;
+    private volatile StudentSnapshot students;
+    private volatile FacultySnapshot faculties;
+
+    public AnalyticsSnapshot(StudentRepository studentRepository, FacultyRepository facultyRepository,
+                             PlatformTransactionManager transactionManager, ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${school.analytics-snapshot.enabled:true}") boolean enabled) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setReadOnly(true);
+        // not read-only: the rows were just committed, and a replica may not have them yet
+        this.patchTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analytics-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("school.analytics.snapshot.resident", this, AnalyticsSnapshot::residentBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("school.analytics.snapshot.students", this,
+                            snapshot -> snapshot.students == null ? 0 : snapshot.students.size())
+                    .register(registry);
+            Gauge.builder("school.analytics.snapshot.pending", pendingPatches, Set::size)
+                    .register(registry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public StudentSnapshot students() {
+        StudentSnapshot current = students;
+        return current != null ? current : loadStudents();
+    }
+
+    /**
+     * The students snapshot, or null while it is not loaded; the load then starts in the
+     * background. For callers with a cheaper answer than loading the whole table.
+     */
+    public StudentSnapshot studentsIfLoaded() {
+        StudentSnapshot current = students;
+        if (current == null && loadScheduled.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                try {
+                    loadStudents();
+                } catch (RuntimeException e) {
+                    logger.warn("Could not load the analytics snapshot: {}", e.toString());
+                } finally {
+                    loadScheduled.set(false);
+                }
+            });
+        }
+        return current;
+    }
+
+    public FacultySnapshot faculties() {
+        FacultySnapshot current = faculties;
+        return current != null ? current : loadFaculties();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.entity() == EntityChangedEvent.Entity.STUDENT && event.id() != null) {
+            if (loading) {
+                changedDuringLoad.add(event.id());
+            }
+            synchronized (patchLock) {
+                if (students != null) {
+                    pendingPatches.add(event.id());
+                }
+            }
+            schedulePatches();
+        } else if (event.entity() == EntityChangedEvent.Entity.FACULTY) {
+            synchronized (patchLock) {
+                facultyGeneration++;
+                faculties = null;
+            }
+        }
+    }
+
+    @EventListener
+    public void onResyncRequired(ResyncRequiredEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        synchronized (patchLock) {
+            studentGeneration++;
+            facultyGeneration++;
+            students = null;
+            faculties = null;
+            pendingPatches.clear();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        worker.shutdownNow();
+    }
+
+    private synchronized StudentSnapshot loadStudents() {
+        StudentSnapshot current = students;
+        if (current != null) {
+            return current;
+        }
+        long start = System.nanoTime();
+        long generation = studentGeneration;
+        loading = true;
+        try {
+            StudentSnapshot.Builder builder = new StudentSnapshot.Builder();
+            PrimaryReads.run(() -> loadTemplate.executeWithoutResult(status -> {
+                try (Stream<StudentSnapshotRow> rows = studentRepository.streamSnapshotRows()) {
+                    rows.forEach(builder::add);
+                }
+            }));
+            StudentSnapshot loaded = builder.build();
+            synchronized (patchLock) {
+                if (generation == studentGeneration) {
+                    students = loaded;
+                    pendingPatches.addAll(changedDuringLoad);
+                }
+                changedDuringLoad.clear();
+            }
+            schedulePatches();
+            logger.info("Loaded {} students into the analytics snapshot in {} ms ({} KB)", loaded.size(),
+                    (System.nanoTime() - start) / 1_000_000, loaded.residentBytes() / 1024);
+            return loaded;
+        } finally {
+            loading = false;
+        }
+    }
+
+    private FacultySnapshot loadFaculties() {
+        synchronized (facultyLock) {
+            FacultySnapshot current = faculties;
+            if (current != null) {
+                return current;
+            }
+            long generation = facultyGeneration;
+            FacultySnapshot loaded = FacultySnapshot.of(PrimaryReads.call(facultyRepository::findAllSummaries));
+            synchronized (patchLock) {
+                if (generation == facultyGeneration) {
+                    faculties = loaded;
+                }
+            }
+            logger.debug("Loaded {} faculties into the analytics snapshot", loaded.size());
+            return loaded;
+        }
+    }
+
+    private void schedulePatches() {
+        if (!pendingPatches.isEmpty() && patchScheduled.compareAndSet(false, true)) {
+            worker.execute(this::applyPatches);
+        }
+    }
+
+    private void applyPatches() {
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (Iterator<Long> it = pendingPatches.iterator(); it.hasNext() && ids.size() < MAX_PATCH_BATCH; ) {
+                ids.add(it.next());
+                it.remove();
+            }
+            if (!ids.isEmpty()) {
+                patch(ids);
+            }
+        } catch (RuntimeException e) {
+            // the snapshot may now miss a change, so it is reloaded on next use
+            logger.warn("Could not patch the analytics snapshot, dropping it: {}", e.toString());
+            synchronized (patchLock) {
+                studentGeneration++;
+                students = null;
+                pendingPatches.clear();
+            }
+        } finally {
+            patchScheduled.set(false);
+            schedulePatches();
+        }
+    }
+
+    private void patch(List<Long> ids) {
+        List<StudentSnapshotRow> rows = patchTemplate.execute(status -> studentRepository.findSnapshotRowsByIdIn(ids));
+        // the merge runs outside the lock, which only guards publishing it
+        while (true) {
+            StudentSnapshot current = students;
+            if (current == null) {
+                return;
+            }
+            StudentSnapshot patched = current.withChanges(rows, ids);
+            synchronized (patchLock) {
+                if (students == current) {
+                    students = patched;
+                    logger.debug("Patched {} students into the analytics snapshot", ids.size());
+                    return;
+                }
+            }
+        }
+    }
+
+    private long residentBytes() {
+        StudentSnapshot currentStudents = students;
+        FacultySnapshot currentFaculties = faculties;
+        return (currentStudents == null ? 0 : currentStudents.residentBytes())
+                + (currentFaculties == null ? 0 : currentFaculties.residentBytes());
+    }
+}
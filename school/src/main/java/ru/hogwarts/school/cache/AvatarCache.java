@@ -0,0 +1,136 @@
+package ru.hogwarts.school.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.datasource.PrimaryReads;
+import ru.hogwarts.school.dto.AvatarContent;
+import ru.hogwarts.school.event.EntityChangedEvent;
+import ru.hogwarts.school.event.ResyncRequiredEvent;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Keeps hot avatar images in direct buffers, so the bytes stay out of the Java heap.
+ * <p>
+ * Bounded by total bytes rather than entries; Caffeine's W-TinyLFU admission keeps
+ * frequently requested avatars when a burst of one-off requests goes through. Avatars
+ * larger than {@code max-entry-size} are never cached; they, and every avatar while the
+ * cache is disabled, are served from the loaded heap array, and direct memory is only
+ * allocated for entries that go into the cache. Entries are dropped after commit when the
+ * avatar changes or its student is deleted.
+ */
+@Component
+public class AvatarCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarCache.class);
+
+    private final Cache<Long, CachedAvatar> cache;
+    private final boolean enabled;
+    private final long maxEntryBytes;
+
+    public AvatarCache(ObjectProvider<MeterRegistry> meterRegistry,
+                       @Value("${school.avatar-cache.enabled:true}") boolean enabled,
+                       @Value("${school.avatar-cache.max-size:64MB}") DataSize maxSize,
+                       @Value("${school.avatar-cache.max-entry-size:1MB}") DataSize maxEntrySize) {
+        this.enabled = enabled;
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Long id, CachedAvatar avatar) -> avatar.size())
+                .recordStats()
+                .build();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, "avatars");
+            Gauge.builder("school.avatar.cache.resident", this, AvatarCache::residentBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("school.avatar.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                    .register(registry);
+        }
+    }
+
+    /**
+     * The cached avatar, if any, without counting a hit or a miss; the request's
+     * {@link #get} counts it, so each served avatar is counted once.
+     */
+    public CachedAvatar peek(Long id) {
+        return enabled ? cache.policy().getIfPresentQuietly(id) : null;
+    }
+
+    /**
+     * Returns the cached avatar or loads it. Concurrent requests for the same avatar share
+     * one load, and an eviction arriving during a load waits for it and then removes it.
+     * Loads read from the primary ({@link PrimaryReads}), so they see the change that evicted
+     * the previous entry.
+     */
+    public CachedAvatar get(Long id, Function<Long, AvatarContent> loader) {
+        if (!enabled) {
+            return CachedAvatar.of(loader.apply(id));
+        }
+        CachedAvatar[] loaded = new CachedAvatar[1];
+        CachedAvatar cached = cache.get(id, key -> {
+            loaded[0] = CachedAvatar.of(PrimaryReads.call(() -> loader.apply(key)));
+            return loaded[0].size() <= maxEntryBytes ? loaded[0].toDirect() : null;
+        });
+        return cached != null ? cached : loaded[0];
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.entity() == EntityChangedEvent.Entity.AVATAR) {
+            cache.invalidate(event.id());
+            logger.debug("Evicted avatar {} after {}", event.id(), event.change());
+        } else if (event.entity() == EntityChangedEvent.Entity.STUDENT
+                && event.change() == EntityChangedEvent.Change.DELETED) {
+            cache.asMap().values().removeIf(avatar -> Objects.equals(avatar.studentId(), event.id()));
+        }
+    }
+
+    @EventListener
+    public void onResyncRequired(ResyncRequiredEvent event) {
+        invalidateAll();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private long residentBytes() {
+        return cache.policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+    }
+
+    public record CachedAvatar(Long id, Long studentId, String mediaType, Long version, ByteBuffer data) {
+
+        static CachedAvatar of(AvatarContent content) {
+            return new CachedAvatar(content.id(), content.studentId(), content.mediaType(), content.version(),
+                    ByteBuffer.wrap(content.data()).asReadOnlyBuffer());
+        }
+
+        CachedAvatar toDirect() {
+            ByteBuffer direct = ByteBuffer.allocateDirect(size());
+            direct.put(data.duplicate()).flip();
+            return new CachedAvatar(id, studentId, mediaType, version, direct.asReadOnlyBuffer());
+        }
+
+        int size() {
+            return data.capacity();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.hogwarts.school.cache;
+
+import ru.hogwarts.school.model.Faculty;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable column-per-field copy of the faculties table, ordered by id. Colours are
+ * dictionary-encoded: each faculty holds an index into the distinct colours, -1 for none.
+ * The table is small, so any change rebuilds the whole snapshot.
+ */
+public final class FacultySnapshot {
+
+    private final long[] ids;
+    private final String[] names;
+    private final int[] colorCodes;
+    private final String[] colors;
+
+    private FacultySnapshot(long[] ids, String[] names, int[] colorCodes, String[] colors) {
+        this.ids = ids;
+        this.names = names;
+        this.colorCodes = colorCodes;
+        this.colors = colors;
+    }
+
+    static FacultySnapshot of(List<Faculty> faculties) {
+        int size = faculties.size();
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        int[] colorCodes = new int[size];
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Faculty faculty = faculties.get(i);
+            ids[i] = faculty.getId();
+            names[i] = faculty.getName();
+            colorCodes[i] = faculty.getColor() == null ? -1
+                    : dictionary.computeIfAbsent(faculty.getColor(), color -> dictionary.size());
+        }
+        String[] colors = new String[dictionary.size()];
+        dictionary.forEach((color, code) -> colors[code] = color);
+        return new FacultySnapshot(ids, names, colorCodes, colors);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public String name(int index) {
+        return names[index];
+    }
+
+    public String color(int index) {
+        return colorCodes[index] < 0 ? null : colors[colorCodes[index]];
+    }
+
+    /**
+     * The longest name (the lowest id on ties), or null if no faculty has one.
+     */
+    public String longestName() {
+        String longest = null;
+        for (String name : names) {
+            if (name != null && (longest == null || name.length() > longest.length())) {
+                longest = name;
+            }
+        }
+        return longest;
+    }
+
+    public long residentBytes() {
+        long bytes = 8L * ids.length + 4L * colorCodes.length + 8L * (names.length + colors.length);
+        for (String name : names) {
+            bytes += name == null ? 0 : 40 + 2L * name.length();
+        }
+        for (String color : colors) {
+            bytes += 40 + 2L * color.length();
+        }
+        return bytes;
+    }
+}
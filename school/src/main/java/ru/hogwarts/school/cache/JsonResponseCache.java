@@ -0,0 +1,172 @@
+package ru.hogwarts.school.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.datasource.PrimaryReads;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.event.EntityChangedEvent;
+import ru.hogwarts.school.event.ResyncRequiredEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized UTF-8 JSON (and a gzipped copy) of read-mostly responses together
+ * with the {@link ResourceVersion} they were built from, so the ETag always matches the
+ * body that is served. Entries are dropped after commit of any change to an entity they
+ * depend on.
+ * <p>
+ * Each entity type has a generation that every change bumps. An entry remembers the
+ * generations of its entities from before its version was read and is only stored, and
+ * only served, while they are unchanged, so a load that overlaps a change is never kept.
+ * Loads read from the primary ({@link PrimaryReads}).
+ */
+@Component
+public class JsonResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonResponseCache.class);
+
+    private final ConcurrentMap<String, CachedJson> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(EntityChangedEvent.Entity.values().length);
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final boolean enabled;
+    private final boolean gzip;
+
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${school.response-cache.enabled:true}") boolean enabled,
+                             @Value("${school.response-cache.gzip:true}") boolean gzip) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.gzip = gzip;
+    }
+
+    /**
+     * The cached response for {@code key}, loading it on a miss. Returns {@code null} if
+     * {@code notModified} accepts the version of the response that would be served; on a
+     * miss the version is read before the body, so such a request does not load the body
+     * at all, and the ETag built from the version is never newer than the body.
+     */
+    public CachedJson get(String key, Set<EntityChangedEvent.Entity> dependsOn, Supplier<ResourceVersion> version,
+                          Predicate<ResourceVersion> notModified, Supplier<?> loader) {
+        CachedJson cached = entries.get(key);
+        if (cached != null && cached.generation() != generation(cached.dependsOn())) {
+            entries.remove(key, cached);
+            cached = null;
+        }
+        if (cached != null) {
+            count(key, "hit");
+            return notModified.test(cached.version()) ? null : cached;
+        }
+        count(key, "miss");
+
+        long generationBeforeLoad = generation(dependsOn);
+        ResourceVersion loadedVersion = PrimaryReads.call(version);
+        if (notModified.test(loadedVersion)) {
+            return null;
+        }
+        CachedJson loaded = serialize(PrimaryReads.call(loader), loadedVersion, dependsOn, generationBeforeLoad);
+        if (enabled) {
+            CachedJson stored = entries.compute(key, (k, existing) ->
+                    generation(dependsOn) == generationBeforeLoad ? loaded : existing);
+            if (stored == loaded) {
+                logger.debug("Cached response '{}' ({} bytes, {} gzipped)", key, loaded.json().length,
+                        loaded.gzip() != null ? loaded.gzip().length : 0);
+            }
+        }
+        return loaded;
+    }
+
+    public boolean isGzipEnabled() {
+        return gzip;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        generations.incrementAndGet(event.entity().ordinal());
+        entries.entrySet().removeIf(entry -> {
+            boolean stale = entry.getValue().dependsOn().contains(event.entity());
+            if (stale) {
+                logger.debug("Evicting cached response '{}' after {} {} {}",
+                        entry.getKey(), event.entity(), event.change(), event.id());
+            }
+            return stale;
+        });
+    }
+
+    @EventListener
+    public void onResyncRequired(ResyncRequiredEvent event) {
+        logger.debug("Clearing cached responses: {}", event.reason());
+        clear();
+    }
+
+    public void clear() {
+        for (int i = 0; i < generations.length(); i++) {
+            generations.incrementAndGet(i);
+        }
+        entries.clear();
+    }
+
+    // generations only grow, so the sum changes whenever one of them does
+    private long generation(Set<EntityChangedEvent.Entity> entities) {
+        long sum = 0;
+        for (EntityChangedEvent.Entity entity : entities) {
+            sum += generations.get(entity.ordinal());
+        }
+        return sum;
+    }
+
+    private CachedJson serialize(Object value, ResourceVersion version, Set<EntityChangedEvent.Entity> dependsOn,
+                                 long generation) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new CachedJson(json, gzip ? gzip(json) : null, version, EnumSet.copyOf(dependsOn), generation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize response", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void count(String key, String result) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Counter.builder("school.response.cache")
+                    .tags("key", key, "result", result)
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    public record CachedJson(byte[] json, byte[] gzip, ResourceVersion version,
+                             Set<EntityChangedEvent.Entity> dependsOn, long generation) {
+    }
+}
@@ -0,0 +1,405 @@
+package ru.hogwarts.school.cache;
+
+import ru.hogwarts.school.dto.StudentSnapshotRow;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable column-per-field copy of the students table, ordered by id: {@code long[]} ids
+ * and faculty ids (0 for none), {@code int[]} ages and all names in one {@code char[]} with
+ * an offset per row. A million students take about 60 MB here against several hundred as
+ * entities. Null names are kept as empty strings.
+ * <p>
+ * {@link #with} and {@link #without} return a new snapshot and leave this one untouched.
+ * Appending a student with a new largest id writes into the spare capacity of the shared
+ * arrays, which no existing snapshot reads, so the common insert costs O(1). Snapshots that
+ * share arrays share a tail counter, and only the first of them to append may use the slot.
+ * Other changes copy the affected columns; {@link #withChanges} applies a batch of them with
+ * one copy.
+ */
+public final class StudentSnapshot {
+
+    static final StudentSnapshot EMPTY = new StudentSnapshot(0, new long[0], new int[0], new long[0], new int[1],
+            new char[0], new AtomicInteger());
+
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    private final int size;
+    private final long[] ids;
+    private final int[] ages;
+    private final long[] facultyIds;
+    private final int[] nameOffsets;
+    private final char[] names;
+    private final AtomicInteger tail;
+
+    private StudentSnapshot(int size, long[] ids, int[] ages, long[] facultyIds, int[] nameOffsets, char[] names,
+                            AtomicInteger tail) {
+        this.size = size;
+        this.ids = ids;
+        this.ages = ages;
+        this.facultyIds = facultyIds;
+        this.nameOffsets = nameOffsets;
+        this.names = names;
+        this.tail = tail;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public int age(int index) {
+        return ages[index];
+    }
+
+    /**
+     * The faculty id of the student at {@code index}, 0 if the student has none.
+     */
+    public long facultyId(int index) {
+        return facultyIds[index];
+    }
+
+    public String name(int index) {
+        return new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index]);
+    }
+
+    /**
+     * Average age, or {@code NaN} when there are no students.
+     */
+    public double averageAge() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        IntStream ages = Arrays.stream(this.ages, 0, size);
+        return (double) (size >= PARALLEL_THRESHOLD ? ages.parallel() : ages).asLongStream().sum() / size;
+    }
+
+    /**
+     * Upper-cased names whose first letter is one of {@code letters} in upper case, sorted.
+     */
+    public List<String> upperCaseNamesStartingWith(char... letters) {
+        IntStream rows = IntStream.range(0, size);
+        return (size >= PARALLEL_THRESHOLD ? rows.parallel() : rows)
+                .filter(i -> nameOffsets[i] < nameOffsets[i + 1]
+                        && contains(letters, Character.toUpperCase(names[nameOffsets[i]])))
+                .mapToObj(i -> name(i).toUpperCase())
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Approximate heap taken by the columns, spare capacity included.
+     */
+    public long residentBytes() {
+        return 8L * ids.length + 4L * ages.length + 8L * facultyIds.length + 4L * nameOffsets.length
+                + 2L * names.length;
+    }
+
+    /**
+     * A snapshot with {@code row} inserted, or replacing the student with the same id.
+     */
+    public StudentSnapshot with(StudentSnapshotRow row) {
+        long id = row.id();
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return replace(index, row);
+        }
+        int position = -index - 1;
+        if (position == size) {
+            return append(row);
+        }
+        return insert(position, row);
+    }
+
+    /**
+     * A snapshot with {@code rows} inserted or replaced and the other {@code changedIds}
+     * removed. Appends and single changes go through {@link #with} and {@link #without};
+     * anything else is merged into new columns in one pass, however many rows changed.
+     */
+    public StudentSnapshot withChanges(Collection<StudentSnapshotRow> rows, Collection<Long> changedIds) {
+        TreeMap<Long, StudentSnapshotRow> changes = new TreeMap<>();
+        changedIds.forEach(id -> changes.put(id, null));
+        rows.forEach(row -> changes.put(row.id(), row));
+        if (changes.isEmpty()) {
+            return this;
+        }
+        boolean appends = (size == 0 || changes.firstKey() > ids[size - 1]) && !changes.containsValue(null);
+        if (appends || changes.size() == 1) {
+            StudentSnapshot patched = this;
+            for (Map.Entry<Long, StudentSnapshotRow> change : changes.entrySet()) {
+                patched = change.getValue() != null ? patched.with(change.getValue()) : patched.without(change.getKey());
+            }
+            return patched;
+        }
+        Builder builder = new Builder(size + rows.size(), nameOffsets[size]);
+        int from = 0;
+        for (Map.Entry<Long, StudentSnapshotRow> change : changes.entrySet()) {
+            int index = Arrays.binarySearch(ids, from, size, change.getKey());
+            int end = index >= 0 ? index : -index - 1;
+            builder.addAll(this, from, end);
+            from = index >= 0 ? index + 1 : end;
+            if (change.getValue() != null) {
+                builder.add(change.getValue());
+            }
+        }
+        builder.addAll(this, from, size);
+        return builder.build();
+    }
+
+    /**
+     * A snapshot without the student {@code id}; this one if there is no such student.
+     */
+    public StudentSnapshot without(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return this;
+        }
+        int start = nameOffsets[index];
+        int length = nameOffsets[index + 1] - start;
+        int[] offsets = new int[size];
+        System.arraycopy(nameOffsets, 0, offsets, 0, index + 1);
+        for (int i = index + 1; i < size; i++) {
+            offsets[i] = nameOffsets[i + 1] - length;
+        }
+        return new StudentSnapshot(size - 1, remove(ids, index), remove(ages, index), remove(facultyIds, index),
+                offsets, removeRange(names, start, length, nameOffsets[size]), new AtomicInteger(size - 1));
+    }
+
+    private StudentSnapshot append(StudentSnapshotRow row) {
+        String name = nameOf(row);
+        int nameEnd = nameOffsets[size] + name.length();
+        boolean spare = size < ids.length && size < ages.length && size < facultyIds.length
+                && size + 1 < nameOffsets.length && nameEnd <= names.length;
+        if (spare && tail.compareAndSet(size, size + 1)) {
+            write(ids, ages, facultyIds, nameOffsets, names, row, name);
+            return new StudentSnapshot(size + 1, ids, ages, facultyIds, nameOffsets, names, tail);
+        }
+        int capacity = Math.max(16, size + (size >> 1));
+        long[] newIds = Arrays.copyOf(ids, capacity);
+        int[] newAges = Arrays.copyOf(ages, capacity);
+        long[] newFacultyIds = Arrays.copyOf(facultyIds, capacity);
+        int[] newOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+        char[] newNames = Arrays.copyOf(names, Math.max(nameEnd, nameOffsets[size] + (nameOffsets[size] >> 1)));
+        write(newIds, newAges, newFacultyIds, newOffsets, newNames, row, name);
+        return new StudentSnapshot(size + 1, newIds, newAges, newFacultyIds, newOffsets, newNames,
+                new AtomicInteger(size + 1));
+    }
+
+    private void write(long[] ids, int[] ages, long[] facultyIds, int[] nameOffsets, char[] names,
+                       StudentSnapshotRow row, String name) {
+        ids[size] = row.id();
+        ages[size] = ageOf(row);
+        facultyIds[size] = facultyIdOf(row);
+        name.getChars(0, name.length(), names, nameOffsets[size]);
+        nameOffsets[size + 1] = nameOffsets[size] + name.length();
+    }
+
+    private StudentSnapshot insert(int position, StudentSnapshotRow row) {
+        String name = nameOf(row);
+        int nameStart = nameOffsets[position];
+        int[] offsets = new int[size + 2];
+        System.arraycopy(nameOffsets, 0, offsets, 0, position + 1);
+        for (int i = position; i <= size; i++) {
+            offsets[i + 1] = nameOffsets[i] + name.length();
+        }
+        char[] newNames = new char[nameOffsets[size] + name.length()];
+        System.arraycopy(names, 0, newNames, 0, nameStart);
+        name.getChars(0, name.length(), newNames, nameStart);
+        System.arraycopy(names, nameStart, newNames, nameStart + name.length(), nameOffsets[size] - nameStart);
+        return new StudentSnapshot(size + 1, insert(ids, position, row.id()), insert(ages, position, ageOf(row)),
+                insert(facultyIds, position, facultyIdOf(row)), offsets, newNames, new AtomicInteger(size + 1));
+    }
+
+    private StudentSnapshot replace(int index, StudentSnapshotRow row) {
+        // ids do not change, and the other columns are only copied if they do
+        int age = ageOf(row);
+        int[] newAges = ages;
+        if (ages[index] != age) {
+            newAges = Arrays.copyOf(ages, size);
+            newAges[index] = age;
+        }
+        long facultyId = facultyIdOf(row);
+        long[] newFacultyIds = facultyIds;
+        if (facultyIds[index] != facultyId) {
+            newFacultyIds = Arrays.copyOf(facultyIds, size);
+            newFacultyIds[index] = facultyId;
+        }
+        String name = nameOf(row);
+        int[] newOffsets = nameOffsets;
+        char[] newNames = names;
+        if (!name.equals(name(index))) {
+            int start = nameOffsets[index];
+            int oldEnd = nameOffsets[index + 1];
+            int delta = name.length() - (oldEnd - start);
+            newOffsets = Arrays.copyOf(nameOffsets, size + 1);
+            for (int i = index + 1; i <= size; i++) {
+                newOffsets[i] += delta;
+            }
+            newNames = new char[nameOffsets[size] + delta];
+            System.arraycopy(names, 0, newNames, 0, start);
+            name.getChars(0, name.length(), newNames, start);
+            System.arraycopy(names, oldEnd, newNames, start + name.length(), nameOffsets[size] - oldEnd);
+        }
+        return new StudentSnapshot(size, ids, newAges, newFacultyIds, newOffsets, newNames, tail);
+    }
+
+    /**
+     * Collects rows in ascending id order into a snapshot.
+     */
+    static final class Builder {
+
+        private int size;
+        private long[] ids;
+        private int[] ages;
+        private long[] facultyIds;
+        private int[] nameOffsets;
+        private char[] names;
+
+        Builder() {
+            this(256, 4096);
+        }
+
+        Builder(int rows, int nameChars) {
+            int capacity = Math.max(1, rows);
+            ids = new long[capacity];
+            ages = new int[capacity];
+            facultyIds = new long[capacity];
+            nameOffsets = new int[capacity + 1];
+            names = new char[Math.max(16, nameChars)];
+        }
+
+        void add(StudentSnapshotRow row) {
+            checkOrder(row.id());
+            ensureCapacity(size + 1);
+            String name = nameOf(row);
+            int nameEnd = nameOffsets[size] + name.length();
+            ensureNameCapacity(nameEnd);
+            ids[size] = row.id();
+            ages[size] = ageOf(row);
+            facultyIds[size] = facultyIdOf(row);
+            name.getChars(0, name.length(), names, nameOffsets[size]);
+            nameOffsets[size + 1] = nameEnd;
+            size++;
+        }
+
+        /**
+         * Copies the rows {@code from} (inclusive) to {@code to} (exclusive) of {@code source}.
+         */
+        void addAll(StudentSnapshot source, int from, int to) {
+            int count = to - from;
+            if (count <= 0) {
+                return;
+            }
+            checkOrder(source.ids[from]);
+            ensureCapacity(size + count);
+            int nameStart = source.nameOffsets[from];
+            int nameLength = source.nameOffsets[to] - nameStart;
+            ensureNameCapacity(nameOffsets[size] + nameLength);
+            System.arraycopy(source.ids, from, ids, size, count);
+            System.arraycopy(source.ages, from, ages, size, count);
+            System.arraycopy(source.facultyIds, from, facultyIds, size, count);
+            System.arraycopy(source.names, nameStart, names, nameOffsets[size], nameLength);
+            int shift = nameOffsets[size] - nameStart;
+            for (int i = 1; i <= count; i++) {
+                nameOffsets[size + i] = source.nameOffsets[from + i] + shift;
+            }
+            size += count;
+        }
+
+        private void checkOrder(long id) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Rows must be in ascending id order, got " + id
+                        + " after " + ids[size - 1]);
+            }
+        }
+
+        private void ensureCapacity(int rows) {
+            if (rows > ids.length) {
+                int capacity = Math.max(rows, ids.length * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                facultyIds = Arrays.copyOf(facultyIds, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+            }
+        }
+
+        private void ensureNameCapacity(int chars) {
+            if (chars > names.length) {
+                names = Arrays.copyOf(names, Math.max(chars, names.length * 2));
+            }
+        }
+
+        StudentSnapshot build() {
+            return new StudentSnapshot(size, Arrays.copyOf(ids, size), Arrays.copyOf(ages, size),
+                    Arrays.copyOf(facultyIds, size), Arrays.copyOf(nameOffsets, size + 1),
+                    Arrays.copyOf(names, nameOffsets[size]), new AtomicInteger(size));
+        }
+    }
+
+    private static String nameOf(StudentSnapshotRow row) {
+        return row.name() == null ? "" : row.name();
+    }
+
+    private static int ageOf(StudentSnapshotRow row) {
+        return row.age() == null ? 0 : row.age();
+    }
+
+    private static long facultyIdOf(StudentSnapshotRow row) {
+        return row.facultyId() == null ? 0 : row.facultyId();
+    }
+
+    private static boolean contains(char[] letters, char letter) {
+        for (char candidate : letters) {
+            if (candidate == letter) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long[] insert(long[] column, int position, long value) {
+        long[] copy = new long[size + 1];
+        System.arraycopy(column, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(column, position, copy, position + 1, size - position);
+        return copy;
+    }
+
+    private int[] insert(int[] column, int position, int value) {
+        int[] copy = new int[size + 1];
+        System.arraycopy(column, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(column, position, copy, position + 1, size - position);
+        return copy;
+    }
+
+    private long[] remove(long[] column, int index) {
+        long[] copy = new long[size - 1];
+        System.arraycopy(column, 0, copy, 0, index);
+        System.arraycopy(column, index + 1, copy, index, size - index - 1);
+        return copy;
+    }
+
+    private int[] remove(int[] column, int index) {
+        int[] copy = new int[size - 1];
+        System.arraycopy(column, 0, copy, 0, index);
+        System.arraycopy(column, index + 1, copy, index, size - index - 1);
+        return copy;
+    }
+
+    private static char[] removeRange(char[] column, int start, int length, int end) {
+        char[] copy = new char[end - length];
+        System.arraycopy(column, 0, copy, 0, start);
+        System.arraycopy(column, start + length, copy, start, end - start - length);
+        return copy;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.hogwarts.school.coalesce;
+
+import java.lang.annotation.*;
+
+/**
+ * Concurrent calls with equal arguments share one execution and its result (or exception).
+ * Only for side-effect-free reads whose result is safe to hand to several callers.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SingleFlight {
+}
@@ -0,0 +1,123 @@
+package ru.hogwarts.school.coalesce;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import ru.hogwarts.school.datasource.PrimaryReads;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs {@link SingleFlight} methods at most once per distinct argument list at a time:
+ * the first caller executes, callers arriving meanwhile wait for its future. The flight
+ * is unregistered before it completes, so a call that starts after the result is known
+ * always executes again. Bookkeeping is a {@link ConcurrentHashMap#putIfAbsent} race,
+ * no locks are held while the method runs.
+ */
+public class SingleFlightInterceptor implements MethodInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlightInterceptor.class);
+
+    private final ConcurrentMap<FlightKey, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Method, MethodStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile boolean gaugesRegistered;
+
+    public SingleFlightInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        // a caller that must read from the primary cannot take a result that may come from a replica
+        FlightKey key = new FlightKey(method, Arrays.asList(invocation.getArguments().clone()), PrimaryReads.isActive());
+        MethodStats methodStats = stats.computeIfAbsent(method, this::register);
+        calls.increment();
+        methodStats.calls.increment();
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            coalesced.increment();
+            methodStats.coalesced.increment();
+            logger.debug("Joined in-flight call of {}", methodStats.name);
+            return await(inFlight);
+        }
+
+        try {
+            Object result = invocation.proceed();
+            flights.remove(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    public double getCoalescedRatio() {
+        long total = calls.sum();
+        return total == 0 ? 0.0 : (double) coalesced.sum() / total;
+    }
+
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    private static Object await(CompletableFuture<Object> flight) throws Throwable {
+        try {
+            return flight.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() != null ? ex.getCause() : ex;
+        }
+    }
+
+    private MethodStats register(Method method) {
+        MethodStats methodStats = new MethodStats(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return methodStats;
+        }
+        if (!gaugesRegistered) {
+            gaugesRegistered = true;
+            Gauge.builder("school.singleflight.coalesced.ratio", this, SingleFlightInterceptor::getCoalescedRatio)
+                    .description("Fraction of @SingleFlight calls served by another caller's execution")
+                    .register(registry);
+            Gauge.builder("school.singleflight.in.flight", this, SingleFlightInterceptor::getInFlight)
+                    .description("Distinct @SingleFlight executions currently running")
+                    .register(registry);
+        }
+        FunctionCounter.builder("school.singleflight.calls", methodStats.calls, LongAdder::sum)
+                .tag("method", methodStats.name)
+                .register(registry);
+        FunctionCounter.builder("school.singleflight.coalesced", methodStats.coalesced, LongAdder::sum)
+                .tag("method", methodStats.name)
+                .register(registry);
+        return methodStats;
+    }
+
+    private record FlightKey(Method method, List<Object> arguments, boolean primaryReads) {
+    }
+
+    private record MethodStats(String name, LongAdder calls, LongAdder coalesced) {
+        private MethodStats(String name) {
+            this(name, new LongAdder(), new LongAdder());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.hogwarts.school.coherence;
+
+import ru.hogwarts.school.event.EntityChangedEvent;
+
+/**
+ * Payload of a coherence notification. {@code sentAt} is the sender's wall clock just
+ * before commit and is only used for the lag metric.
+ */
+public record CoherenceMessage(String origin,
+                               EntityChangedEvent.Entity entity,
+                               EntityChangedEvent.Change change,
+                               Long id,
+                               long sentAt) {
+}
@@ -0,0 +1,192 @@
+package ru.hogwarts.school.coherence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import ru.hogwarts.school.event.EntityChangedEvent;
+import ru.hogwarts.school.event.ResyncRequiredEvent;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Holds a dedicated connection (outside the pool) that {@code LISTEN}s on the coherence
+ * channel and republishes changes made by other instances as remote
+ * {@link EntityChangedEvent}s, which evict the local caches.
+ * <p>
+ * Notifications sent while the connection is down are lost, so after reconnecting it
+ * publishes a {@link ResyncRequiredEvent} and caches start over. An idle connection is
+ * probed regularly so a silently dropped one is noticed.
+ */
+public class PgNotifyListener implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PgNotifyListener.class);
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final long PROBE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final CoherenceProperties properties;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+    private final Timer lag;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private Thread thread;
+
+    public PgNotifyListener(CoherenceProperties properties, String url, String username, String password,
+                            ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry, String nodeId) {
+        if (!CHANNEL_NAME.matcher(properties.getChannel()).matches()) {
+            throw new IllegalArgumentException("Invalid coherence channel name: " + properties.getChannel());
+        }
+        this.properties = properties;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.nodeId = nodeId;
+
+        if (meterRegistry != null) {
+            this.lag = Timer.builder("school.coherence.lag")
+                    .description("Time from the sending instance's commit to local eviction")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            Gauge.builder("school.coherence.connected", this, listener -> listener.connected ? 1 : 0)
+                    .register(meterRegistry);
+        } else {
+            this.lag = null;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "coherence-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(properties.getPollTimeout().toMillis() * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        Duration delay = properties.getReconnectDelay();
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + properties.getChannel());
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                connected = true;
+                delay = properties.getReconnectDelay();
+                logger.info("Listening for changes of other instances on channel {}", properties.getChannel());
+                if (reconnecting) {
+                    eventPublisher.publishEvent(new ResyncRequiredEvent("coherence channel reconnected"));
+                    count("school.coherence.resyncs");
+                }
+
+                long lastActivity = System.nanoTime();
+                while (running) {
+                    PGNotification[] notifications =
+                            pgConnection.getNotifications((int) properties.getPollTimeout().toMillis());
+                    if (notifications != null && notifications.length > 0) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                        lastActivity = System.nanoTime();
+                    } else if (System.nanoTime() - lastActivity > PROBE_INTERVAL_NANOS) {
+                        statement.execute("SELECT 1");
+                        lastActivity = System.nanoTime();
+                    }
+                }
+            } catch (SQLException e) {
+                connected = false;
+                if (!running) {
+                    break;
+                }
+                reconnecting = true;
+                logger.warn("Coherence channel {} unavailable ({}), retrying in {} ms",
+                        properties.getChannel(), e.getMessage(), delay.toMillis());
+                if (!sleep(delay)) {
+                    break;
+                }
+                delay = delay.multipliedBy(2);
+                if (delay.compareTo(properties.getMaxReconnectDelay()) > 0) {
+                    delay = properties.getMaxReconnectDelay();
+                }
+            }
+        }
+        connected = false;
+    }
+
+    private void handle(String payload) {
+        CoherenceMessage message;
+        try {
+            message = objectMapper.readValue(payload, CoherenceMessage.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring malformed coherence notification: {}", payload);
+            return;
+        }
+        if (nodeId.equals(message.origin())) {
+            return;
+        }
+        logger.debug("Remote change from {}: {} {} {}", message.origin(), message.entity(), message.change(), message.id());
+        eventPublisher.publishEvent(new EntityChangedEvent(message.entity(), message.change(), message.id(), true));
+        if (lag != null) {
+            lag.record(Math.max(0, System.currentTimeMillis() - message.sentAt()), TimeUnit.MILLISECONDS);
+        }
+        count("school.coherence.received");
+    }
+
+    private boolean sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void count(String name) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(name).increment();
+        }
+    }
+}
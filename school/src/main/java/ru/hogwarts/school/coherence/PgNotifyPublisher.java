@@ -0,0 +1,50 @@
+package ru.hogwarts.school.coherence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.hogwarts.school.event.EntityChangedEvent;
+
+/**
+ * Sends local changes to the other instances with {@code pg_notify}. It runs before
+ * commit on the transaction's own connection, so Postgres delivers the notification
+ * exactly when (and only if) the change commits.
+ */
+public class PgNotifyPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PgNotifyPublisher.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String channel;
+    private final String nodeId;
+
+    public PgNotifyPublisher(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                             String channel, String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.channel = channel;
+        this.nodeId = nodeId;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) throws JsonProcessingException {
+        if (event.remote()) {
+            return;
+        }
+        String payload = objectMapper.writeValueAsString(new CoherenceMessage(
+                nodeId, event.entity(), event.change(), event.id(), System.currentTimeMillis()));
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, channel, payload);
+        logger.debug("Notified {} of {} {} {}", channel, event.entity(), event.change(), event.id());
+        if (meterRegistry != null) {
+            meterRegistry.counter("school.coherence.published").increment();
+        }
+    }
+}
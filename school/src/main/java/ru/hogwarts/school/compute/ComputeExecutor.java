@@ -0,0 +1,134 @@
+package ru.hogwarts.school.compute;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.hogwarts.school.exception.ComputeUnavailableException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs CPU-bound work off the request threads on a dedicated {@link ForkJoinPool}. Parallel
+ * streams started by a task run on this pool as well, not on the JVM-wide common pool.
+ * <p>
+ * At most {@code parallelism + queue-capacity} tasks are admitted at a time; beyond that
+ * {@link #submit} throws {@link ComputeUnavailableException} straight away. A task that
+ * misses the timeout completes its future with the same exception; if it has not started
+ * yet it is skipped, otherwise it runs to the end and keeps its admission until then, since
+ * CPU-bound code does not respond to interruption.
+ */
+public class ComputeExecutor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComputeExecutor.class);
+
+    private final ForkJoinPool pool;
+    private final ScheduledThreadPoolExecutor timeouts;
+    private final Semaphore admission;
+    private final Duration timeout;
+    private final MeterRegistry meterRegistry;
+
+    public ComputeExecutor(ComputeProperties properties, MeterRegistry meterRegistry) {
+        int parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("compute-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.timeouts = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "compute-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeouts.setRemoveOnCancelPolicy(true);
+        this.admission = new Semaphore(parallelism + Math.max(0, properties.getQueueCapacity()));
+        this.timeout = properties.getTimeout();
+        this.meterRegistry = meterRegistry;
+
+        if (meterRegistry != null) {
+            new ExecutorServiceMetrics(pool, "compute", Tags.empty()).bindTo(meterRegistry);
+        }
+        logger.info("Compute pool started with {} workers, {} queued tasks at most and a {} timeout",
+                parallelism, properties.getQueueCapacity(), timeout);
+    }
+
+    /**
+     * Schedules {@code work} on the compute pool; {@code task} names it in metrics and logs.
+     *
+     * @throws ComputeUnavailableException if the pool and its queue are full
+     */
+    public <T> CompletableFuture<T> submit(String task, Supplier<T> work) {
+        if (!admission.tryAcquire()) {
+            increment("school.compute.rejected", task);
+            logger.warn("Rejected {}: compute pool and queue are full", task);
+            throw new ComputeUnavailableException("Compute pool is busy, retry later");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            pool.execute(() -> run(task, work, result, queuedAt));
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            throw new ComputeUnavailableException("Compute pool is shut down");
+        }
+        ScheduledFuture<?> deadline = timeouts.schedule(() -> {
+            if (result.completeExceptionally(new ComputeUnavailableException(
+                    "Computation did not finish within " + timeout.toMillis() + " ms"))) {
+                increment("school.compute.timeouts", task);
+                logger.warn("{} timed out after {} ms", task, timeout.toMillis());
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        result.whenComplete((value, error) -> deadline.cancel(false));
+        return result;
+    }
+
+    private <T> void run(String task, Supplier<T> work, CompletableFuture<T> result, long queuedAt) {
+        try {
+            long start = System.nanoTime();
+            record("school.compute.queue.wait", task, start - queuedAt);
+            if (result.isDone()) {
+                logger.debug("Skipping {}: timed out while queued", task);
+                return;
+            }
+            try {
+                result.complete(work.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+            record("school.compute.task", task, System.nanoTime() - start);
+        } finally {
+            admission.release();
+        }
+    }
+
+    private void increment(String name, String task) {
+        if (meterRegistry != null) {
+            Counter.builder(name).tag("task", task).register(meterRegistry).increment();
+        }
+    }
+
+    private void record(String name, String task, long nanos) {
+        if (meterRegistry != null) {
+            Timer.builder(name).tag("task", task).register(meterRegistry).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        timeouts.shutdownNow();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.hogwarts.school.compute;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("school.compute")
+public class ComputeProperties {
+
+    /**
+     * Worker threads of the compute pool; 0 uses one per available processor.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Tasks that may wait for a worker; further submissions are rejected with 503.
+     */
+    private int queueCapacity = 32;
+
+    /**
+     * A task that has not finished by then is answered with 503. It keeps its worker until
+     * it finishes, but a task still waiting in the queue is skipped.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
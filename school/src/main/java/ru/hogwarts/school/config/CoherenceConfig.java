@@ -0,0 +1,42 @@
+package ru.hogwarts.school.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.hogwarts.school.coherence.CoherenceProperties;
+import ru.hogwarts.school.coherence.PgNotifyListener;
+import ru.hogwarts.school.coherence.PgNotifyPublisher;
+
+import java.util.UUID;
+
+@Configuration
+@EnableConfigurationProperties(CoherenceProperties.class)
+@ConditionalOnProperty(name = "school.coherence.enabled", havingValue = "true")
+public class CoherenceConfig {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Bean
+    public PgNotifyPublisher pgNotifyPublisher(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                               ObjectProvider<MeterRegistry> meterRegistry,
+                                               CoherenceProperties properties) {
+        return new PgNotifyPublisher(jdbcTemplate, objectMapper, meterRegistry.getIfAvailable(),
+                properties.getChannel(), nodeId);
+    }
+
+    @Bean
+    public PgNotifyListener pgNotifyListener(CoherenceProperties properties, DataSourceProperties dataSourceProperties,
+                                             ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        return new PgNotifyListener(properties, dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(),
+                objectMapper, eventPublisher, meterRegistry.getIfAvailable(), nodeId);
+    }
+}
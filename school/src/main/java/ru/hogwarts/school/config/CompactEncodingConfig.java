@@ -0,0 +1,36 @@
+package ru.hogwarts.school.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import ru.hogwarts.school.web.CompactCodecs;
+
+/**
+ * Smile and CBOR converters built from Boot's Jackson builder; they replace the
+ * framework defaults, which would otherwise ignore spring.jackson.* settings.
+ */
+@Configuration
+public class CompactEncodingConfig {
+
+    @Bean
+    public CompactCodecs compactCodecs(ObjectMapper objectMapper, Jackson2ObjectMapperBuilder builder) {
+        return new CompactCodecs(objectMapper,
+                builder.factory(new SmileFactory()).build(),
+                builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(CompactCodecs codecs) {
+        return new MappingJackson2SmileHttpMessageConverter(codecs.smile());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(CompactCodecs codecs) {
+        return new MappingJackson2CborHttpMessageConverter(codecs.cbor());
+    }
+}
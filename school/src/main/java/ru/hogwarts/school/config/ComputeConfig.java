@@ -0,0 +1,19 @@
+package ru.hogwarts.school.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.hogwarts.school.compute.ComputeExecutor;
+import ru.hogwarts.school.compute.ComputeProperties;
+
+@Configuration
+@EnableConfigurationProperties(ComputeProperties.class)
+public class ComputeConfig {
+
+    @Bean
+    public ComputeExecutor computeExecutor(ComputeProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ComputeExecutor(properties, meterRegistry.getIfAvailable());
+    }
+}
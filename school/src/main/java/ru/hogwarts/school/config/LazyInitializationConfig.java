@@ -0,0 +1,70 @@
+package ru.hogwarts.school.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Marks {@code @Bean}s declared in {@code school.startup.lazy-packages} (e.g. springdoc) as lazy,
+ * so they are created on first use instead of during startup. Beans that hook into
+ * startup themselves (listeners, lifecycle, after-singletons callbacks) stay eager.
+ */
+@Configuration(proxyBeanMethods = false)
+public class LazyInitializationConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(LazyInitializationConfig.class);
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                .bind("school.startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(List.of());
+        return beanFactory -> {
+            if (packages.isEmpty()) {
+                return;
+            }
+            int count = 0;
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (definition.isLazyInit() || definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE) {
+                    continue;
+                }
+                String className = declaringClassName(definition);
+                if (className != null && packages.stream().anyMatch(className::startsWith)
+                        && !hasStartupCallback(beanFactory.getType(name, false))) {
+                    definition.setLazyInit(true);
+                    count++;
+                }
+            }
+            logger.debug("Marked {} beans from {} as lazy", count, packages);
+        };
+    }
+
+    // these do their work while the context starts, deferring them changes behaviour
+    private static boolean hasStartupCallback(Class<?> type) {
+        return type == null
+                || SmartInitializingSingleton.class.isAssignableFrom(type)
+                || ApplicationListener.class.isAssignableFrom(type)
+                || Lifecycle.class.isAssignableFrom(type);
+    }
+
+    // only @Bean methods: configuration classes themselves may initialise shared state
+    private static String declaringClassName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated && annotated.getFactoryMethodMetadata() != null) {
+            return annotated.getFactoryMethodMetadata().getDeclaringClassName();
+        }
+        return null;
+    }
+}
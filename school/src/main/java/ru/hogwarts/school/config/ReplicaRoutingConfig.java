@@ -0,0 +1,76 @@
+package ru.hogwarts.school.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.hogwarts.school.datasource.LazyRoutingDataSource;
+import ru.hogwarts.school.datasource.ReplicaRoutingDataSource;
+import ru.hogwarts.school.datasource.ReplicaRoutingProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+@ConditionalOnProperty(name = "school.datasource.routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public LazyRoutingDataSource dataSource(ReplicaRoutingProperties properties,
+                                            DataSourceProperties dataSourceProperties,
+                                            ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+
+        HikariDataSource primary = pool("primary", dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(),
+                properties.getPrimaryPoolSize(), false, registry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReplicaRoutingProperties.Replica replica = properties.getReplicas().get(i);
+            replicas.add(pool("replica-" + i, replica.getUrl(),
+                    replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername(),
+                    replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword(),
+                    replica.getPoolSize(), true, registry));
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas,
+                properties.getMaxLag(), properties.getLagCheckInterval());
+        routing.afterPropertiesSet();
+
+        if (registry != null) {
+            for (ReplicaRoutingDataSource.Replica replica : routing.getReplicas()) {
+                Gauge.builder("school.datasource.replica.lag", replica, ReplicaRoutingDataSource.Replica::getLagMillis)
+                        .tag("pool", replica.name())
+                        .baseUnit("milliseconds")
+                        .register(registry);
+                Gauge.builder("school.datasource.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                        .tag("pool", replica.name())
+                        .register(registry);
+            }
+        }
+        return new LazyRoutingDataSource(routing);
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password,
+                                         int size, boolean readOnly, MeterRegistry registry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaximumPoolSize(size);
+        pool.setReadOnly(readOnly);
+        if (registry != null) {
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.hogwarts.school.seed.DatasetSeeder;
+import ru.hogwarts.school.seed.SeedProperties;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(SeedProperties.class)
+@ConditionalOnProperty(name = "school.seed.enabled", havingValue = "true")
+public class SeedConfig {
+
+    @Bean
+    public DatasetSeeder datasetSeeder(SeedProperties properties, DataSource dataSource, ApplicationContext context) {
+        return new DatasetSeeder(properties, dataSource, context);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.hogwarts.school.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.batch.StudentBatchProperties;
+import ru.hogwarts.school.batch.StudentBatchWriter;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.service.StudentService;
+
+@Configuration
+@EnableConfigurationProperties(StudentBatchProperties.class)
+@ConditionalOnProperty(name = "school.student-batch.enabled", havingValue = "true")
+public class StudentBatchConfig {
+
+    @Bean
+    public StudentBatchWriter studentBatchWriter(StudentBatchProperties properties, JdbcTemplate jdbcTemplate,
+                                                 PlatformTransactionManager transactionManager,
+                                                 FacultyRepository facultyRepository, StudentService studentService,
+                                                 ApplicationEventPublisher eventPublisher,
+                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        return new StudentBatchWriter(properties, jdbcTemplate, new TransactionTemplate(transactionManager),
+                facultyRepository, studentService, eventPublisher, meterRegistry.getIfAvailable());
+    }
+}
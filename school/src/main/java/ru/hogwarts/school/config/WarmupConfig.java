@@ -0,0 +1,27 @@
+package ru.hogwarts.school.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.MathService;
+import ru.hogwarts.school.service.StudentService;
+import ru.hogwarts.school.warmup.WarmupProperties;
+import ru.hogwarts.school.warmup.WarmupRunner;
+
+@Configuration
+@EnableConfigurationProperties(WarmupProperties.class)
+@ConditionalOnProperty(name = "school.warmup.enabled", havingValue = "true")
+public class WarmupConfig {
+
+    @Bean
+    public WarmupRunner warmupRunner(WarmupProperties properties, StudentService studentService,
+                                     FacultyService facultyService, MathService mathService,
+                                     ObjectMapper objectMapper, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new WarmupRunner(properties, studentService, facultyService, mathService, objectMapper, meterRegistry);
+    }
+}
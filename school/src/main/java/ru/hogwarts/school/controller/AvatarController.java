@@ -1,17 +1,30 @@
 package ru.hogwarts.school.controller;
 
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.hogwarts.school.cache.AvatarCache;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.web.ByteBufferResource;
 
 @RestController
 @RequestMapping("/avatar")
 public class AvatarController {
+    // the URL stays the same when an avatar is replaced, so caches have to revalidate with the ETag
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
     private final AvatarService avatarService;
+    private final AvatarCache avatarCache;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService, AvatarCache avatarCache) {
         this.avatarService = avatarService;
+        this.avatarCache = avatarCache;
     }
 
     @GetMapping
@@ -19,4 +32,24 @@ public class AvatarController {
                                       @RequestParam(defaultValue = "10") Integer size) {
         return avatarService.getAllAvatars(page, size);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/data")
+    public ResponseEntity<Resource> getAvatarData(@PathVariable Long id, WebRequest request) {
+        AvatarCache.CachedAvatar cached = avatarCache.peek(id);
+        long version = cached != null ? cached.version() : avatarService.getAvatarVersion(id);
+        if (request.checkNotModified(eTag(id, version))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(id, version)).cacheControl(REVALIDATE).build();
+        }
+        AvatarCache.CachedAvatar avatar = avatarCache.get(id, avatarService::getAvatarContent);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(avatar.mediaType()))
+                .contentLength(avatar.data().remaining())
+                .eTag(eTag(id, avatar.version()))
+                .cacheControl(REVALIDATE)
+                .body(new ByteBufferResource(avatar.data(), "avatar " + id));
+    }
+
+    private static String eTag(Long id, long version) {
+        return "\"avatar-" + id + "-" + version + "\"";
+    }
+}
@@ -1,19 +1,51 @@
 package ru.hogwarts.school.controller;
 
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.hogwarts.school.cache.JsonResponseCache;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.dto.StudentPage;
+import ru.hogwarts.school.event.EntityChangedEvent;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.AvatarService;
 import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.web.AvatarZipWriter;
+import ru.hogwarts.school.web.CompactCodecs;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/faculty")
 public class FacultyController {
+    private static final Set<EntityChangedEvent.Entity> FACULTIES_DEPEND_ON =
+            EnumSet.of(EntityChangedEvent.Entity.FACULTY, EntityChangedEvent.Entity.STUDENT);
+
     private final FacultyService facultyService;
+    private final JsonResponseCache responseCache;
+    private final AvatarService avatarService;
+    private final CompactCodecs codecs;
 
-    public FacultyController(FacultyService facultyService) {
+    public FacultyController(FacultyService facultyService, JsonResponseCache responseCache,
+                             AvatarService avatarService, CompactCodecs codecs) {
         this.facultyService = facultyService;
+        this.responseCache = responseCache;
+        this.avatarService = avatarService;
+        this.codecs = codecs;
     }
 
     @PostMapping
@@ -22,8 +54,15 @@ public class FacultyController {
     }
 
     @GetMapping("/{id}")
-    public Faculty getFaculty(@PathVariable Long id) {
-        return facultyService.getFacultyById(id);
+    public ResponseEntity<Faculty> getFaculty(@PathVariable Long id, WebRequest request) {
+        ResourceVersion version = facultyService.getFacultyVersion(id);
+        String eTag = version.eTag("faculty-" + id);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(facultyService.getFacultyById(id));
     }
 
     @PutMapping("/{id}")
@@ -36,9 +75,75 @@ public class FacultyController {
         return facultyService.deleteFaculty(id);
     }
 
-    @GetMapping
-    public Collection<Faculty> getAllFaculties() {
-        return facultyService.getAllFaculties();
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, CompactCodecs.APPLICATION_SMILE_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<?> getAllFaculties(@RequestParam(required = false) List<String> fields,
+                                             @RequestParam(required = false) List<String> include,
+                                             WebRequest request) {
+        MediaType format = codecs.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        if (fields != null || include != null) {
+            return getFacultyViews(fields, include, format, request);
+        }
+        if (codecs.isBinary(format)) {
+            // the pre-serialized cache holds JSON only; binary encodings are cheap enough to produce per request
+            ResourceVersion version = facultyService.getFacultiesVersion();
+            String eTag = version.eTag("faculties-" + format.getSubtype());
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .contentType(format)
+                    .eTag(eTag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(facultyService.getAllFaculties());
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = responseCache.isGzipEnabled() && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String resource = gzip ? "faculties-gzip" : "faculties";
+
+        // the ETag comes from the cached entry, so it always describes the body sent with it
+        JsonResponseCache.CachedJson cached = responseCache.get("faculties", FACULTIES_DEPEND_ON,
+                facultyService::getFacultiesVersion, version -> request.checkNotModified(version.eTag(resource)),
+                facultyService::getAllFaculties);
+        if (cached == null) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(cached.version().eTag(resource))
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzip());
+        }
+        return response.body(cached.json());
+    }
+
+    private ResponseEntity<List<Map<String, Object>>> getFacultyViews(List<String> fields, List<String> include,
+                                                                      MediaType format, WebRequest request) {
+        ResourceVersion version = facultyService.getFacultiesVersion();
+        String selection = "fields=" + (fields == null ? "" : String.join(",", fields))
+                + ";include=" + (include == null ? "" : String.join(",", include)) + ";format=" + format;
+        String eTag = version.eTag("faculties-" + digest(selection));
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(format)
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(facultyService.getFacultyViews(fields, include));
+    }
+
+    /**
+     * SHA-256 of the selection, so two selections share an ETag only if they are the same.
+     */
+    private static String digest(String selection) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(selection.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     @GetMapping("/color")
@@ -52,8 +157,36 @@ public class FacultyController {
     }
 
     @GetMapping("/{id}/students")
-    public Collection<Student> getFacultyStudents(@PathVariable Long id) {
-        return facultyService.getStudentsByFacultyId(id);
+    public ResponseEntity<List<Student>> getFacultyStudents(@PathVariable Long id,
+                                                            @RequestParam(required = false) String sort,
+                                                            @RequestParam(required = false) String after,
+                                                            @RequestParam(required = false) Integer limit) {
+        StudentPage page = facultyService.getStudentsByFacultyId(id, sort, after, limit);
+        if (page.next() == null) {
+            return ResponseEntity.ok(page.students());
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", page.next())
+                .build()
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.students());
+    }
+
+    @GetMapping(value = "/{id}/avatars.zip", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> getFacultyAvatarsZip(@PathVariable Long id) {
+        facultyService.checkFacultyExists(id);
+        StreamingResponseBody body = out -> {
+            AvatarZipWriter zip = new AvatarZipWriter(out);
+            avatarService.forEachFacultyAvatar(id, zip);
+            zip.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("faculty-" + id + "-avatars.zip").build().toString())
+                .body(body);
     }
 
     @GetMapping("/longest-name")
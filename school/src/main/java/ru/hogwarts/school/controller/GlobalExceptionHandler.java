@@ -4,8 +4,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.hogwarts.school.exception.AvatarNotFoundException;
+import ru.hogwarts.school.exception.ComputeUnavailableException;
 import ru.hogwarts.school.exception.FacultyNotFoundException;
+import ru.hogwarts.school.exception.InvalidFieldSelectionException;
+import ru.hogwarts.school.exception.InvalidPageRequestException;
 import ru.hogwarts.school.exception.StudentNotFoundException;
+import ru.hogwarts.school.exception.StudentBatchUnavailableException;
+import ru.hogwarts.school.exception.SubscriberLimitException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -21,4 +27,40 @@ public class GlobalExceptionHandler {
     public String handleFacultyNotFound(FacultyNotFoundException ex) {
         return ex.getMessage();
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(AvatarNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleAvatarNotFound(AvatarNotFoundException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(InvalidFieldSelectionException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidFieldSelection(InvalidFieldSelectionException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(InvalidPageRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidPageRequest(InvalidPageRequestException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(SubscriberLimitException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleSubscriberLimit(SubscriberLimitException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(ComputeUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleComputeUnavailable(ComputeUnavailableException ex) {
+        return ex.getMessage();
+    }
+
+    @ExceptionHandler(StudentBatchUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleStudentBatchUnavailable(StudentBatchUnavailableException ex) {
+        return ex.getMessage();
+    }
+}
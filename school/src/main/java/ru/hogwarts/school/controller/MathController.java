@@ -3,35 +3,44 @@ package ru.hogwarts.school.controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.hogwarts.school.compute.ComputeExecutor;
 import ru.hogwarts.school.service.MathService;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The summing strategies run on the {@link ComputeExecutor}, so the request thread is
+ * released while they compute. The formula is constant time and is answered directly.
+ */
 @RestController
 @RequestMapping("/math")
 public class MathController {
 
     private final MathService mathService;
+    private final ComputeExecutor computeExecutor;
 
-    public MathController(MathService mathService) {
+    public MathController(MathService mathService, ComputeExecutor computeExecutor) {
         this.mathService = mathService;
+        this.computeExecutor = computeExecutor;
     }
 
     @GetMapping("/sum-slow")
-    public long getSumSlow() {
-        return mathService.calculateSumSlow();
+    public CompletableFuture<Long> getSumSlow() {
+        return computeExecutor.submit("sum-slow", mathService::calculateSumSlow);
     }
 
     @GetMapping("/sum-formula")
-    public long getSumFormula() {
-        return mathService.calculateSumFormula();
+    public CompletableFuture<Long> getSumFormula() {
+        return CompletableFuture.completedFuture(mathService.calculateSumFormula());
     }
 
     @GetMapping("/sum-parallel")
-    public long getSumParallel() {
-        return mathService.calculateSumParallel();
+    public CompletableFuture<Long> getSumParallel() {
+        return computeExecutor.submit("sum-parallel", mathService::calculateSumParallel);
     }
 
     @GetMapping("/sum-range")
-    public long getSumRange() {
-        return mathService.calculateSumRange();
+    public CompletableFuture<Long> getSumRange() {
+        return computeExecutor.submit("sum-range", mathService::calculateSumRange);
     }
-}
\ No newline at end of file
+}
@@ -1,10 +1,26 @@
 package ru.hogwarts.school.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.hogwarts.school.batch.StudentBatchWriter;
+import ru.hogwarts.school.dto.AgeDistributionReport;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.dto.StudentRosterEntry;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.service.StudentService;
+import ru.hogwarts.school.web.CompactCodecs;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.List;
 
@@ -12,19 +28,32 @@ import java.util.List;
 @RequestMapping("/student")
 public class StudentController {
     private final StudentService studentService;
+    private final ObjectProvider<StudentBatchWriter> batchWriter;
+    private final CompactCodecs codecs;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, ObjectProvider<StudentBatchWriter> batchWriter,
+                             CompactCodecs codecs) {
         this.studentService = studentService;
+        this.batchWriter = batchWriter;
+        this.codecs = codecs;
     }
 
     @PostMapping
     public Student createStudent(@RequestBody Student student) {
-        return studentService.createStudent(student);
+        StudentBatchWriter writer = batchWriter.getIfAvailable();
+        return writer != null ? writer.createStudent(student) : studentService.createStudent(student);
     }
 
     @GetMapping("/{id}")
-    public Student getStudent(@PathVariable Long id) {
-        return studentService.getStudentById(id);
+    public ResponseEntity<Student> getStudent(@PathVariable Long id, WebRequest request) {
+        ResourceVersion version = studentService.getStudentVersion(id);
+        String eTag = version.eTag("student-" + id);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(studentService.getStudentById(id));
     }
 
     @PutMapping("/{id}")
@@ -38,7 +67,10 @@ public class StudentController {
     }
 
     @GetMapping
-    public Collection<Student> getAllStudents() {
+    public Collection<?> getAllStudents(@RequestParam(required = false) List<String> fields) {
+        if (fields != null) {
+            return studentService.getStudentViews(fields);
+        }
         return studentService.getAllStudents();
     }
 
@@ -67,6 +99,11 @@ public class StudentController {
         return studentService.getAverageAge();
     }
 
+    @GetMapping("/age-distribution")
+    public AgeDistributionReport getAgeDistribution(@RequestParam(required = false) Long facultyId) {
+        return studentService.getAgeDistribution(facultyId);
+    }
+
     @GetMapping("/last-five")
     public Collection<Student> getLastFiveStudents() {
         return studentService.getLastFiveStudents();
@@ -81,4 +118,58 @@ public class StudentController {
     public Double getAverageAgeUsingStream() {
         return studentService.getAverageAgeUsingFindAll();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/with-avatar")
+    public ResponseEntity<List<StudentRosterEntry>> getStudentsWithAvatar(@RequestParam(required = false) Long after,
+                                                                          @RequestParam(required = false) Integer limit) {
+        return page(studentService.getStudentsWithAvatar(after, limit), limit);
+    }
+
+    @GetMapping("/roster")
+    public ResponseEntity<List<StudentRosterEntry>> getRoster(@RequestParam(required = false) Long after,
+                                                              @RequestParam(required = false) Integer limit) {
+        return page(studentService.getRoster(after, limit), limit);
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE,
+            CompactCodecs.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamRoster(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType format = codecs.negotiate(accept);
+        ObjectMapper mapper = codecs.mapperFor(format);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = mapper.createGenerator(out)) {
+                generator.writeStartArray();
+                studentService.forEachRosterEntry(entry -> {
+                    try {
+                        generator.writeObject(entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(format)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    // a full page may have a successor; point at it with the last id as the key
+    private static ResponseEntity<List<StudentRosterEntry>> page(List<StudentRosterEntry> entries, Integer limit) {
+        int pageSize = (limit == null || limit <= 0) ? StudentService.DEFAULT_PAGE_LIMIT
+                : Math.min(limit, StudentService.MAX_PAGE_LIMIT);
+        if (entries.size() < pageSize) {
+            return ResponseEntity.ok(entries);
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", entries.get(entries.size() - 1).id())
+                .replaceQueryParam("limit", pageSize)
+                .build()
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(entries);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.hogwarts.school.datasource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Defers fetching the physical connection until the first statement, by which time
+ * {@link ReplicaRoutingDataSource} can see whether the transaction is read-only.
+ */
+public class LazyRoutingDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    private final ReplicaRoutingDataSource routing;
+
+    public LazyRoutingDataSource(ReplicaRoutingDataSource routing) {
+        super(routing);
+        this.routing = routing;
+    }
+
+    public ReplicaRoutingDataSource getRouting() {
+        return routing;
+    }
+
+    @Override
+    public void destroy() {
+        routing.close();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.hogwarts.school.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks reads on the current thread that must see the latest commits. Read-only
+ * transactions whose first statement runs inside {@link #call} go to the primary instead of
+ * a replica. Caches use it when they fill: an entry read from a lagging replica right after
+ * the eviction would keep the data from before the change until the next eviction.
+ */
+public final class PrimaryReads {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    public static <T> T call(Supplier<T> action) {
+        Boolean previous = ACTIVE.get();
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                ACTIVE.remove();
+            }
+        }
+    }
+
+    public static void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Map;
+
+/**
+ * Age statistics of a group of students. Percentiles use the nearest-rank method, so they
+ * are always an age somebody actually has; {@code histogram} maps each age somebody has,
+ * in ascending order, to its number of students (ages nobody has are left out). All
+ * statistics are null for an empty group.
+ */
+public record AgeDistribution(Long facultyId, int students, Integer minAge, Integer maxAge, Double averageAge,
+                              Integer medianAge, Integer p90Age, Map<Integer, Integer> histogram) {
+}
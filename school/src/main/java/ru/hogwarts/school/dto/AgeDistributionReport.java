@@ -0,0 +1,10 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+/**
+ * {@code overall} covers every selected student, including those without a faculty;
+ * {@code faculties} has one entry per faculty, ordered by id.
+ */
+public record AgeDistributionReport(AgeDistribution overall, List<AgeDistribution> faculties) {
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * Number of students of one age in one faculty ({@code facultyId} is null for students without one).
+ */
+public record AgeGroupCount(Long facultyId, Integer age, Long count) {
+}
@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record AvatarContent(Long id, Long studentId, String mediaType, Long version, byte[] data) {
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.event.EntityChangedEvent;
+
+import java.time.Instant;
+
+public record ChangeNotification(long sequence,
+                                 EntityChangedEvent.Entity entity,
+                                 EntityChangedEvent.Change change,
+                                 Long id,
+                                 Instant timestamp) {
+}
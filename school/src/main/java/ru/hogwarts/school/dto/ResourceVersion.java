@@ -0,0 +1,34 @@
+package ru.hogwarts.school.dto;
+
+import java.time.Instant;
+
+/**
+ * Aggregate state of one or more rows: how many there are, the sum of their
+ * optimistic-lock versions and the latest update time. Any insert, update or
+ * delete changes at least one of the three, so it is enough to build an ETag
+ * without loading the rows themselves.
+ * <p>
+ * The update time alone is not enough for {@code Last-Modified}: deleting a row or moving
+ * it to another faculty does not advance it, and HTTP dates only have second precision.
+ */
+public record ResourceVersion(Long count, Long versionSum, Instant lastModified) {
+
+    public ResourceVersion {
+        count = count == null ? 0L : count;
+        versionSum = versionSum == null ? 0L : versionSum;
+        lastModified = lastModified == null ? Instant.EPOCH : lastModified;
+    }
+
+    public boolean exists() {
+        return count > 0;
+    }
+
+    public ResourceVersion plus(ResourceVersion other) {
+        return new ResourceVersion(count + other.count, versionSum + other.versionSum,
+                lastModified.isAfter(other.lastModified) ? lastModified : other.lastModified);
+    }
+
+    public String eTag(String resource) {
+        return "\"" + resource + "-" + count + "-" + versionSum + "-" + lastModified.toEpochMilli() + "\"";
+    }
+}
@@ -0,0 +1,11 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.Student;
+
+import java.util.List;
+
+/**
+ * One page of students; {@code next} is the cursor of the following page, or null on the last one.
+ */
+public record StudentPage(List<Student> students, String next) {
+}
@@ -0,0 +1,15 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * A student with faculty name and avatar metadata; faculty and avatar fields are null
+ * when missing. Never carries the avatar bytes.
+ */
+public record StudentRosterEntry(Long id,
+                                 String name,
+                                 int age,
+                                 Long facultyId,
+                                 String facultyName,
+                                 Long avatarId,
+                                 String avatarMediaType,
+                                 Long avatarFileSize) {
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * The columns of a student kept by the analytics snapshot ({@code facultyId} is null for students without one).
+ */
+public record StudentSnapshotRow(Long id, String name, Integer age, Long facultyId) {
+}
@@ -0,0 +1,262 @@
+package ru.hogwarts.school.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.dto.ChangeNotification;
+import ru.hogwarts.school.exception.SubscriberLimitException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes committed student/faculty changes to {@code GET /events} subscribers.
+ * <p>
+ * Every change gets the next sequence number; the SSE event id is {@code <epoch>-<sequence>},
+ * where the epoch is picked at random when the feed starts, because the sequence restarts at
+ * 0 on every boot and differs between instances. The last {@code replay-size} changes are
+ * kept so a client reconnecting with {@code Last-Event-ID} gets what it missed; if that is
+ * no longer possible (too old, or from another epoch) it gets a {@code reset} event and
+ * should reload. Each subscriber has its own bounded
+ * buffer drained on a dispatcher thread, so a slow client never blocks the committing
+ * request; when the buffer overflows the subscriber is disconnected and has to resume.
+ */
+@Component
+public class ChangeFeed implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private static final Frame HEARTBEAT = new Frame(-1, null, null);
+    private static final char EPOCH_SEPARATOR = '-';
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final Object lock = new Object();
+    private final ArrayDeque<Frame> replay = new ArrayDeque<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final int replaySize;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService heartbeat;
+
+    private long sequence;
+
+    public ChangeFeed(ObjectMapper objectMapper,
+                      ObjectProvider<MeterRegistry> meterRegistry,
+                      @Value("${school.events.replay-size:1024}") int replaySize,
+                      @Value("${school.events.subscriber-buffer:256}") int bufferSize,
+                      @Value("${school.events.max-subscribers:500}") int maxSubscribers,
+                      @Value("${school.events.timeout:30m}") Duration timeout,
+                      @Value("${school.events.heartbeat:15s}") Duration heartbeatInterval) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.replaySize = replaySize;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(() -> subscribers.forEach(s -> s.enqueue(HEARTBEAT)),
+                interval, interval, TimeUnit.MILLISECONDS);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("school.events.subscribers", subscribers, Set::size).register(registry);
+        }
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new SubscriberLimitException("Too many event subscribers, retry later");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+
+        synchronized (lock) {
+            if (lastEventId != null) {
+                long last = sequenceOf(lastEventId);
+                List<Frame> missed = replay.stream().filter(frame -> frame.id() > last).toList();
+                Frame oldest = replay.peekFirst();
+                boolean complete = last >= 0 && last <= sequence
+                        && (oldest == null ? last == sequence : last >= oldest.id() - 1)
+                        && missed.size() <= bufferSize;
+                if (complete) {
+                    missed.forEach(subscriber::enqueue);
+                } else {
+                    logger.debug("Cannot resume events after {}, current id {}", lastEventId, eventId(sequence));
+                    subscriber.enqueue(new Frame(sequence, "reset",
+                            "{\"epoch\":\"" + epoch + "\",\"sequence\":" + sequence + "}"));
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        logger.debug("Event subscriber connected, last event id {}, {} subscribers", lastEventId, subscribers.size());
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        synchronized (lock) {
+            long id = ++sequence;
+            Frame frame = new Frame(id, null, toJson(
+                    new ChangeNotification(id, event.entity(), event.change(), event.id(), Instant.now())));
+            replay.addLast(frame);
+            if (replay.size() > replaySize) {
+                replay.removeFirst();
+            }
+            subscribers.forEach(subscriber -> subscriber.enqueue(frame));
+        }
+        count("school.events.published");
+    }
+
+    private String eventId(long id) {
+        return epoch + EPOCH_SEPARATOR + id;
+    }
+
+    /**
+     * The sequence number in an event id of this epoch, or -1 for ids of another epoch,
+     * including the bare numbers sent before ids carried one.
+     */
+    private long sequenceOf(String eventId) {
+        int separator = eventId.lastIndexOf(EPOCH_SEPARATOR);
+        if (separator < 0 || !epoch.equals(eventId.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        heartbeat.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+        dispatcher.shutdown();
+    }
+
+    private String toJson(ChangeNotification notification) {
+        try {
+            return objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void count(String name) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter(name).increment();
+        }
+    }
+
+    private record Frame(long id, String name, String data) {
+
+        SseEmitter.SseEventBuilder toEvent(String eventId) {
+            if (data == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            SseEmitter.SseEventBuilder event = SseEmitter.event().id(eventId).data(data);
+            return name != null ? event.name(name) : event;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enqueue(Frame frame) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                logger.warn("Event subscriber fell {} events behind, disconnecting it", bufferSize);
+                count("school.events.dropped");
+                close();
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    Frame frame;
+                    while (!closed && (frame = queue.poll()) != null) {
+                        emitter.send(frame.toEvent(eventId(frame.id())));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Event subscriber gone: {}", e.toString());
+                    closed = true;
+                    subscribers.remove(this);
+                    scheduled.set(false);
+                    return;
+                }
+                scheduled.set(false);
+            } while (!closed && !queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        // completing takes the emitter's monitor, which a blocked send may hold
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            dispatcher.execute(emitter::complete);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.hogwarts.school.event;
+
+/**
+ * A committed change to an entity. {@code remote} events were made on another instance
+ * and arrived through the coherence channel; they must not be forwarded again.
+ */
+public record EntityChangedEvent(Entity entity, Change change, Long id, boolean remote) {
+
+    public EntityChangedEvent(Entity entity, Change change, Long id) {
+        this(entity, change, id, false);
+    }
+
+    public enum Entity {
+        STUDENT,
+        FACULTY,
+        AVATAR
+    }
+
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,8 @@
+package ru.hogwarts.school.event;
+
+/**
+ * Change notifications from other instances may have been lost (e.g. the coherence
+ * connection dropped); local caches should drop everything they hold.
+ */
+public record ResyncRequiredEvent(String reason) {
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class AvatarNotFoundException extends RuntimeException {
+    public AvatarNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class ComputeUnavailableException extends RuntimeException {
+    public ComputeUnavailableException(String message) {
+        super(message);
+    }
+}
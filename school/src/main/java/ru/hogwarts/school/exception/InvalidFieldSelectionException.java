@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class InvalidFieldSelectionException extends RuntimeException {
+    public InvalidFieldSelectionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class StudentBatchUnavailableException extends RuntimeException {
+    public StudentBatchUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class SubscriberLimitException extends RuntimeException {
+    public SubscriberLimitException(String message) {
+        super(message);
+    }
+}
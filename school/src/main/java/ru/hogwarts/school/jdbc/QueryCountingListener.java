@@ -0,0 +1,49 @@
+package ru.hogwarts.school.jdbc;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Feeds statement, row and timing figures of the current thread into its {@link QueryStats}.
+ * Statements issued outside a tracked scope are ignored.
+ */
+public class QueryCountingListener implements QueryExecutionListener, MethodExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        QueryStats stats = QueryStatsHolder.current();
+        if (stats == null) {
+            return;
+        }
+        long elapsedPerQuery = queryInfoList.isEmpty() ? 0 : execInfo.getElapsedTime() / queryInfoList.size();
+        for (QueryInfo queryInfo : queryInfoList) {
+            stats.recordStatement(queryInfo.getQuery(), elapsedPerQuery);
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof ResultSet
+                && "next".equals(executionContext.getMethod().getName())
+                && Boolean.TRUE.equals(executionContext.getResult())) {
+            QueryStats stats = QueryStatsHolder.current();
+            if (stats != null) {
+                stats.recordRow();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.hogwarts.school.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryStats {
+
+    private int statements;
+    private long rowsFetched;
+    private long elapsedMillis;
+    private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+    void recordStatement(String sql, long elapsedMillis) {
+        statements++;
+        this.elapsedMillis += elapsedMillis;
+        executionsBySql.merge(sql, 1, Integer::sum);
+    }
+
+    void recordRow() {
+        rowsFetched++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRowsFetched() {
+        return rowsFetched;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        Map<String, Integer> repeated = new HashMap<>();
+        executionsBySql.forEach((sql, count) -> {
+            if (count >= threshold) {
+                repeated.put(sql, count);
+            }
+        });
+        return repeated;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStats{" +
+                "statements=" + statements +
+                ", rowsFetched=" + rowsFetched +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
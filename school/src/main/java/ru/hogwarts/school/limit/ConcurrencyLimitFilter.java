@@ -0,0 +1,146 @@
+package ru.hogwarts.school.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caps concurrent requests per endpoint group with an {@link AdaptiveLimiter}, or a fixed
+ * limit for groups that are not adaptive, and answers 503 straight away once a group is at
+ * its limit.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private final List<Route> routes = new ArrayList<>();
+
+    public ConcurrencyLimitFilter(Map<String, ConcurrencyLimitProperties.Group> groups, MeterRegistry meterRegistry) {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        groups.forEach((name, group) -> {
+            // a fixed group is a limiter that cannot move: min, max and initial limit are equal
+            AdaptiveLimiter limiter = group.isAdaptive()
+                    ? new AdaptiveLimiter(group.getInitialLimit(), group.getMinLimit(), group.getMaxLimit(),
+                    group.getLatencyThreshold().toNanos(), group.getBackoffRatio())
+                    : new AdaptiveLimiter(group.getMaxLimit(), group.getMaxLimit(), group.getMaxLimit(),
+                    group.getLatencyThreshold().toNanos(), group.getBackoffRatio());
+            Counter rejected = Counter.builder("school.concurrency.rejected")
+                    .tag("group", name)
+                    .register(meterRegistry);
+            Gauge.builder("school.concurrency.limit", limiter, AdaptiveLimiter::getLimit)
+                    .tag("group", name)
+                    .register(meterRegistry);
+            Gauge.builder("school.concurrency.in-flight", limiter, AdaptiveLimiter::getInFlight)
+                    .tag("group", name)
+                    .register(meterRegistry);
+
+            for (String endpoint : group.getEndpoints()) {
+                String[] parts = endpoint.trim().split("\\s+", 2);
+                String method = parts.length == 2 ? parts[0].toUpperCase() : null;
+                PathPattern pattern = parser.parse(parts[parts.length - 1]);
+                routes.add(new Route(name, method, pattern, limiter, rejected));
+            }
+            logger.info("Concurrency limit group '{}' covers {} with {} limit {}",
+                    name, group.getEndpoints(), group.isAdaptive() ? "initial" : "fixed", limiter.getLimit());
+        });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Route route = findRoute(request);
+        if (route == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!route.limiter().tryAcquire()) {
+            route.rejected().increment();
+            logger.debug("Rejecting {} {}: group '{}' at limit {}",
+                    request.getMethod(), request.getRequestURI(), route.group(), route.limiter().getLimit());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            route.limiter().onDropped();
+            throw e;
+        }
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new ReleaseOnComplete(route.limiter(), start));
+        } else {
+            release(route.limiter(), response.getStatus(), start);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    private Route findRoute(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        for (Route route : routes) {
+            if ((route.method() == null || route.method().equals(request.getMethod())) && route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static void release(AdaptiveLimiter limiter, int status, long start) {
+        if (status >= 500) {
+            limiter.onDropped();
+        } else if (status >= 400) {
+            limiter.onIgnored();
+        } else {
+            limiter.onSuccess(System.nanoTime() - start);
+        }
+    }
+
+    private record Route(String group, String method, PathPattern pattern, AdaptiveLimiter limiter, Counter rejected) {
+    }
+
+    private record ReleaseOnComplete(AdaptiveLimiter limiter, long start) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+            release(limiter, response.getStatus(), start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.hogwarts.school.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limits the per-call "Was invoked method" lines per logger.
+ * <p>
+ * Runs before the message is formatted, so a denied event costs a prefix check
+ * and one CAS. Every logger gets {@code permitsPerSecond} matching events per
+ * second; anything above that is dropped until the next one-second window.
+ */
+public class InvocationLogSamplingFilter extends TurboFilter {
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private String prefix = "Was invoked method";
+    private int permitsPerSecond = 10;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != Level.INFO || format == null || !format.startsWith(prefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (permitsPerSecond <= 0) {
+            return FilterReply.DENY;
+        }
+        Window window = windows.computeIfAbsent(logger.getName(), name -> new Window());
+        return window.tryAcquire(System.nanoTime(), permitsPerSecond) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void setPermitsPerSecond(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    private static final class Window {
+        private final AtomicLong start = new AtomicLong(System.nanoTime());
+        private final AtomicLong used = new AtomicLong();
+
+        boolean tryAcquire(long now, int permits) {
+            long windowStart = start.get();
+            if (now - windowStart >= WINDOW_NANOS && start.compareAndSet(windowStart, now)) {
+                used.set(0);
+            }
+            return used.incrementAndGet() <= permits;
+        }
+    }
+}
@@ -23,6 +23,10 @@ public class Avatar {
     @JsonIgnore
     private Student student;
 
+    @Version
+    @JsonIgnore
+    private Long version;
+
     public Avatar() {
     }
 
@@ -51,6 +55,9 @@ public class Avatar {
     public Student getStudent() {
         return student;
     }
+    public Long getVersion() {
+        return version;
+    }
 
     public void setId(Long id) {
         this.id = id;
@@ -70,4 +77,7 @@ public class Avatar {
     public void setStudent(Student student) {
         this.student = student;
     }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
 package ru.hogwarts.school.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
-@Table(name = "student")
+@Table(name = "students")
 public class Student {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,9 +23,24 @@ public class Student {
     @JsonBackReference
     private Faculty faculty;
 
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    @UpdateTimestamp
+    @JsonIgnore
+    private Instant updatedAt;
+
     public Student() {
     }
 
+    /**
+     * Detached student with only id, name and age set; the faculty is not loaded.
+     */
+    public Student(Long id, String name, int age) {
+        this(id, name, age, null);
+    }
+
     public Student(Long id, String name, int age, Faculty faculty) {
         this.id = id;
         this.name = name;
@@ -46,6 +64,14 @@ public class Student {
         return faculty;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -62,6 +88,14 @@ public class Student {
         this.faculty = faculty;
     }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
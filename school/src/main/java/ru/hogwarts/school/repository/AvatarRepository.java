@@ -1,10 +1,30 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.hogwarts.school.dto.AvatarContent;
 import ru.hogwarts.school.model.Avatar;
 
+import java.util.Optional;
+import java.util.stream.Stream;
+
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
     Page<Avatar> findAll(Pageable pageable);
+
+    @Query("SELECT a.version FROM Avatar a WHERE a.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarContent(a.id, a.student.id, a.mediaType, a.version, a.data) " +
+            "FROM Avatar a WHERE a.id = :id")
+    Optional<AvatarContent> findContentById(Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1"))
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarContent(a.id, s.id, a.mediaType, a.version, a.data) " +
+            "FROM Avatar a JOIN a.student s WHERE s.faculty.id = :facultyId AND a.data IS NOT NULL ORDER BY a.id")
+    Stream<AvatarContent> streamContentByFacultyId(Long facultyId);
 }
\ No newline at end of file
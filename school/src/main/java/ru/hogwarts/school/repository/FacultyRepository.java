@@ -1,12 +1,32 @@
 package ru.hogwarts.school.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import ru.hogwarts.school.dto.ResourceVersion;
 import ru.hogwarts.school.model.Faculty;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface FacultyRepository extends JpaRepository<Faculty, Long> {
+public interface FacultyRepository extends JpaRepository<Faculty, Long>, FacultyViewRepository {
     List<Faculty> findByColor(String color);
 
     List<Faculty> findByNameIgnoreCaseOrColorIgnoreCase(String name, String color);
+
+    @Query("SELECT new ru.hogwarts.school.dto.ResourceVersion(COUNT(f), SUM(f.version), MAX(f.updatedAt)) " +
+            "FROM Faculty f WHERE f.id = :id")
+    ResourceVersion findVersionById(Long id);
+
+    @Query("SELECT new ru.hogwarts.school.dto.ResourceVersion(COUNT(f), SUM(f.version), MAX(f.updatedAt)) " +
+            "FROM Faculty f")
+    ResourceVersion findVersionOfAll();
+
+    /**
+     * Detached faculties with only id, name and colour set; the students collection is not loaded.
+     */
+    @Query("SELECT new ru.hogwarts.school.model.Faculty(f.id, f.name, f.color) FROM Faculty f WHERE f.id IN :ids")
+    List<Faculty> findSummariesByIdIn(Collection<Long> ids);
+
+    @Query("SELECT new ru.hogwarts.school.model.Faculty(f.id, f.name, f.color) FROM Faculty f ORDER BY f.id")
+    List<Faculty> findAllSummaries();
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package ru.hogwarts.school.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse faculty views: only the requested columns are selected.
+ */
+public interface FacultyViewRepository {
+
+    Set<String> FACULTY_FIELDS = Set.of("id", "name", "color");
+
+    List<Map<String, Object>> findFacultyViews(List<String> fields);
+}
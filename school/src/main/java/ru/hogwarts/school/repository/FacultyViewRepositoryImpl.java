@@ -0,0 +1,24 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ru.hogwarts.school.model.Faculty;
+
+import java.util.List;
+import java.util.Map;
+
+class FacultyViewRepositoryImpl implements FacultyViewRepository {
+
+    private static final FieldProjection<Faculty> PROJECTION = new FieldProjection<>(Faculty.class, Map.of(
+            "id", (root, cb) -> root.get("id"),
+            "name", (root, cb) -> root.get("name"),
+            "color", (root, cb) -> root.get("color")));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFacultyViews(List<String> fields) {
+        return PROJECTION.select(entityManager, fields, null);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Selects only the named fields of an entity with a Criteria multiselect and returns
+ * each row as an ordered field-to-value map, ready to be serialized as a sparse view.
+ */
+final class FieldProjection<T> {
+
+    private final Class<T> entityType;
+    private final Map<String, BiFunction<Root<T>, CriteriaBuilder, Expression<?>>> fields;
+
+    FieldProjection(Class<T> entityType, Map<String, BiFunction<Root<T>, CriteriaBuilder, Expression<?>>> fields) {
+        this.entityType = entityType;
+        this.fields = fields;
+    }
+
+    Set<String> fieldNames() {
+        return fields.keySet();
+    }
+
+    List<Map<String, Object>> select(EntityManager entityManager, List<String> names,
+                                     BiFunction<Root<T>, CriteriaBuilder, Predicate> where) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityType);
+
+        List<Selection<?>> selections = new ArrayList<>(names.size());
+        for (String name : names) {
+            BiFunction<Root<T>, CriteriaBuilder, Expression<?>> path = fields.get(name);
+            if (path == null) {
+                throw new IllegalArgumentException("Unknown field of " + entityType.getSimpleName() + ": " + name);
+            }
+            selections.add(path.apply(root, cb).alias(name));
+        }
+        query.multiselect(selections);
+        if (where != null) {
+            query.where(where.apply(root, cb));
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        List<Tuple> rows = entityManager.createQuery(query).getResultList();
+        List<Map<String, Object>> views = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> view = new LinkedHashMap<>();
+            for (String name : names) {
+                view.put(name, row.get(name));
+            }
+            views.add(view);
+        }
+        return views;
+    }
+}
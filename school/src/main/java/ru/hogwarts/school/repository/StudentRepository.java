@@ -1,12 +1,22 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.hogwarts.school.dto.AgeGroupCount;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.dto.StudentRosterEntry;
+import ru.hogwarts.school.dto.StudentSnapshotRow;
 import ru.hogwarts.school.model.Student;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface StudentRepository extends JpaRepository<Student, Long> {
+public interface StudentRepository extends JpaRepository<Student, Long>, StudentViewRepository {
     List<Student> findByAge(int age);
 
     List<Student> findByAgeBetween(int minAge, int maxAge);
@@ -17,6 +27,76 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     @Query("SELECT AVG(s.age) FROM Student s")
     Double getAverageAge();
 
+    @Query("SELECT new ru.hogwarts.school.dto.AgeGroupCount(s.faculty.id, s.age, COUNT(s)) " +
+            "FROM Student s GROUP BY s.faculty.id, s.age")
+    List<AgeGroupCount> countByFacultyAndAge();
+
+    @Query("SELECT new ru.hogwarts.school.dto.AgeGroupCount(s.faculty.id, s.age, COUNT(s)) " +
+            "FROM Student s WHERE s.faculty.id = :facultyId GROUP BY s.faculty.id, s.age")
+    List<AgeGroupCount> countByAgeInFaculty(Long facultyId);
+
+    @Query("SELECT new ru.hogwarts.school.model.Student(s.id, s.name, s.age) FROM Student s " +
+            "WHERE s.faculty.id = :facultyId AND s.id > :afterId ORDER BY s.id")
+    List<Student> findFacultyPageOrderById(Long facultyId, Long afterId, Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.model.Student(s.id, s.name, s.age) FROM Student s " +
+            "WHERE s.faculty.id = :facultyId AND s.age >= :afterAge AND (s.age > :afterAge OR s.id > :afterId) " +
+            "ORDER BY s.age, s.id")
+    List<Student> findFacultyPageOrderByAge(Long facultyId, int afterAge, Long afterId, Limit limit);
+
+    /**
+     * Keyset pages: the leading {@code >=} on the sort key keeps each page a range scan of the
+     * (faculty_id, key, id) index. Students without a name are not included here;
+     * {@link #findUnnamedFacultyPage} pages through them.
+     */
+    @Query("SELECT new ru.hogwarts.school.model.Student(s.id, s.name, s.age) FROM Student s " +
+            "WHERE s.faculty.id = :facultyId AND s.name >= :afterName AND (s.name > :afterName OR s.id > :afterId) " +
+            "ORDER BY s.name, s.id")
+    List<Student> findFacultyPageOrderByName(Long facultyId, String afterName, Long afterId, Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.model.Student(s.id, s.name, s.age) FROM Student s " +
+            "WHERE s.faculty.id = :facultyId AND s.name IS NULL AND s.id > :afterId ORDER BY s.id")
+    List<Student> findUnnamedFacultyPage(Long facultyId, Long afterId, Limit limit);
+
     @Query("SELECT s FROM Student s ORDER BY s.id DESC LIMIT 5")
     List<Student> findLastFiveStudents();
+
+    @Query("SELECT new ru.hogwarts.school.dto.ResourceVersion(COUNT(s), SUM(s.version), MAX(s.updatedAt)) " +
+            "FROM Student s WHERE s.id = :id")
+    ResourceVersion findVersionById(Long id);
+
+    @Query("SELECT new ru.hogwarts.school.dto.ResourceVersion(COUNT(s), SUM(s.version), MAX(s.updatedAt)) " +
+            "FROM Student s WHERE s.faculty.id = :facultyId")
+    ResourceVersion findVersionByFacultyId(Long facultyId);
+
+    @Query("SELECT new ru.hogwarts.school.dto.ResourceVersion(COUNT(s), SUM(s.version), MAX(s.updatedAt)) " +
+            "FROM Student s WHERE s.faculty IS NOT NULL")
+    ResourceVersion findVersionOfFacultyMembers();
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentRosterEntry(s.id, s.name, s.age, f.id, f.name, " +
+            "a.id, a.mediaType, a.fileSize) " +
+            "FROM Avatar a JOIN a.student s LEFT JOIN s.faculty f " +
+            "WHERE s.id > :afterId ORDER BY s.id")
+    List<StudentRosterEntry> findWithAvatarAfter(Long afterId, Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentRosterEntry(s.id, s.name, s.age, f.id, f.name, " +
+            "a.id, a.mediaType, a.fileSize) " +
+            "FROM Student s LEFT JOIN s.faculty f LEFT JOIN Avatar a ON a.student = s " +
+            "WHERE s.id > :afterId ORDER BY s.id")
+    List<StudentRosterEntry> findRosterAfter(Long afterId, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new ru.hogwarts.school.dto.StudentRosterEntry(s.id, s.name, s.age, f.id, f.name, " +
+            "a.id, a.mediaType, a.fileSize) " +
+            "FROM Student s LEFT JOIN s.faculty f LEFT JOIN Avatar a ON a.student = s ORDER BY s.id")
+    Stream<StudentRosterEntry> streamRoster();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT new ru.hogwarts.school.dto.StudentSnapshotRow(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s ORDER BY s.id")
+    Stream<StudentSnapshotRow> streamSnapshotRows();
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentSnapshotRow(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.id IN :ids")
+    List<StudentSnapshotRow> findSnapshotRowsByIdIn(Collection<Long> ids);
 }
\ No newline at end of file
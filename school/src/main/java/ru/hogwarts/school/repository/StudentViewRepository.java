@@ -0,0 +1,19 @@
+package ru.hogwarts.school.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse student views: only the requested columns are selected, {@code facultyId}
+ * is read from the foreign key without joining faculties.
+ */
+public interface StudentViewRepository {
+
+    Set<String> STUDENT_FIELDS = Set.of("id", "name", "age", "facultyId");
+
+    List<Map<String, Object>> findStudentViews(List<String> fields);
+
+    List<Map<String, Object>> findStudentViewsByFacultyIdIn(Collection<Long> facultyIds, List<String> fields);
+}
@@ -0,0 +1,31 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ru.hogwarts.school.model.Student;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+class StudentViewRepositoryImpl implements StudentViewRepository {
+
+    private static final FieldProjection<Student> PROJECTION = new FieldProjection<>(Student.class, Map.of(
+            "id", (root, cb) -> root.get("id"),
+            "name", (root, cb) -> root.get("name"),
+            "age", (root, cb) -> root.get("age"),
+            "facultyId", (root, cb) -> root.get("faculty").get("id")));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findStudentViews(List<String> fields) {
+        return PROJECTION.select(entityManager, fields, null);
+    }
+
+    @Override
+    public List<Map<String, Object>> findStudentViewsByFacultyIdIn(Collection<Long> facultyIds, List<String> fields) {
+        return PROJECTION.select(entityManager, fields, (root, cb) -> root.get("faculty").get("id").in(facultyIds));
+    }
+}
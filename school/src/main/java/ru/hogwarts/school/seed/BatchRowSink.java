@@ -0,0 +1,57 @@
+package ru.hogwarts.school.seed;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+
+/**
+ * Portable fallback for databases without {@code COPY}: one prepared insert, sent in JDBC
+ * batches and committed every {@code batchSize} rows.
+ */
+class BatchRowSink implements RowSink {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final int batchSize;
+    private final boolean autoCommit;
+    private int pending;
+
+    BatchRowSink(Connection connection, int batchSize, String table, String... columns) throws SQLException {
+        this.connection = connection;
+        this.batchSize = Math.max(1, batchSize);
+        this.autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        this.statement = connection.prepareStatement("INSERT INTO " + table + " (" + String.join(", ", columns)
+                + ") VALUES (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")");
+    }
+
+    @Override
+    public void add(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+        statement.addBatch();
+        if (++pending == batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+        } finally {
+            statement.close();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (pending > 0) {
+            statement.executeBatch();
+            connection.commit();
+            pending = 0;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.hogwarts.school.seed;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Streams rows into Postgres with {@code COPY ... FROM STDIN} in text format, which skips
+ * statement parsing and per-row round trips altogether.
+ */
+class CopyRowSink implements RowSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final PGCopyOutputStream out;
+    private final StringBuilder line = new StringBuilder(256);
+
+    CopyRowSink(PGConnection connection, String table, String... columns) throws SQLException {
+        this.out = new PGCopyOutputStream(connection,
+                "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN", BUFFER_SIZE);
+    }
+
+    @Override
+    public void add(Object... values) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            append(values[i]);
+        }
+        line.append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void append(Object value) {
+        if (value == null) {
+            line.append("\\N");
+        } else if (value instanceof byte[] bytes) {
+            // bytea hex format; the backslash itself has to be escaped in COPY text
+            line.ensureCapacity(line.length() + 3 + bytes.length * 2);
+            line.append("\\\\x");
+            for (byte b : bytes) {
+                line.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        } else if (value instanceof CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\\' -> line.append("\\\\");
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    default -> line.append(c);
+                }
+            }
+        } else {
+            line.append(value);
+        }
+    }
+}
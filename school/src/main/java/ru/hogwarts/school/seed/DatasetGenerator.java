@@ -0,0 +1,168 @@
+package ru.hogwarts.school.seed;
+
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Produces faculties, students and avatars from {@link SeedProperties}. Each table draws
+ * from its own random stream derived from the seed, so a table's rows depend only on the
+ * seed and the cardinalities, not on which other tables are generated or in what order.
+ * <p>
+ * Ids are assigned consecutively from the given first ids; students of faculty rank
+ * {@code r} (0 is the largest) reference {@code firstFacultyId + r}.
+ */
+public class DatasetGenerator {
+
+    private static final String[] LATIN_FIRST_NAMES = {
+            "Harry", "Hermione", "Ron", "Draco", "Luna", "Neville", "Ginny", "Cedric", "Cho", "Seamus",
+            "Dean", "Parvati", "Padma", "Lavender", "Hannah", "Ernie", "Justin", "Susan", "Terry", "Michael",
+            "Anthony", "Marcus", "Oliver", "Katie", "Angelina", "Alicia", "Lee", "Colin", "Dennis", "Romilda",
+            "Vincent", "Gregory", "Pansy", "Blaise", "Theodore", "Millicent", "Daphne", "Astoria", "Adrian", "Zacharias"};
+    private static final String[] LATIN_LAST_NAMES = {
+            "Potter", "Granger", "Weasley", "Malfoy", "Lovegood", "Longbottom", "Diggory", "Chang", "Finnigan",
+            "Thomas", "Patil", "Brown", "Abbott", "Macmillan", "Finch-Fletchley", "Bones", "Boot", "Corner",
+            "Goldstein", "Flint", "Wood", "Bell", "Johnson", "Spinnet", "Jordan", "Creevey", "Vane", "Crabbe",
+            "Goyle", "Parkinson", "Zabini", "Nott", "Bulstrode", "Greengrass", "Pucey", "Smith"};
+    private static final String[] CYRILLIC_FIRST_NAMES = {
+            "Александр", "Алексей", "Анна", "Анастасия", "Андрей", "Борис", "Варвара", "Василий", "Вера",
+            "Виктор", "Галина", "Дмитрий", "Дарья", "Евгений", "Екатерина", "Елена", "Иван", "Игорь", "Ирина",
+            "Кирилл", "Ксения", "Лев", "Мария", "Михаил", "Наталья", "Никита", "Ольга", "Павел", "Полина",
+            "Роман", "Светлана", "Сергей", "Софья", "Татьяна", "Фёдор", "Юлия", "Юрий", "Ярослав"};
+    private static final String[] CYRILLIC_LAST_NAMES = {
+            "Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров", "Соколов", "Михайлов", "Новиков",
+            "Фёдоров", "Морозов", "Волков", "Алексеев", "Лебедев", "Семёнов", "Егоров", "Павлов", "Козлов",
+            "Степанов", "Николаев", "Орлов", "Андреев", "Макаров", "Никитин", "Захаров", "Зайцев", "Соловьёв",
+            "Борисов", "Яковлев", "Григорьев", "Романов", "Воробьёв"};
+    private static final String[] LATIN_FACULTY_NAMES = {
+            "Gryffindor", "Slytherin", "Ravenclaw", "Hufflepuff", "Alchemy", "Astronomy", "Charms", "Divination",
+            "Herbology", "Potions", "Transfiguration", "Arithmancy", "Runes", "Dark Arts Defence", "Magical Creatures"};
+    private static final String[] CYRILLIC_FACULTY_NAMES = {
+            "Гриффиндор", "Слизерин", "Когтевран", "Пуффендуй", "Алхимия", "Астрономия", "Чары", "Прорицания",
+            "Травология", "Зельеварение", "Трансфигурация", "Нумерология", "Руны", "Защита от тёмных искусств",
+            "Уход за магическими существами"};
+    private static final String[] COLORS = {
+            "red", "green", "blue", "yellow", "black", "white", "purple", "orange", "silver", "gold", "bronze", "grey"};
+
+    private static final byte[] JPEG_HEADER = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0};
+    private static final byte[] JPEG_TRAILER = {(byte) 0xFF, (byte) 0xD9};
+
+    public record FacultyRow(long id, String name, String color) {
+    }
+
+    public record StudentRow(long id, String name, int age, long facultyId) {
+    }
+
+    public record AvatarRow(long id, String filePath, long fileSize, String mediaType, byte[] data, long studentId) {
+    }
+
+    private final SeedProperties properties;
+    private final double[] facultyWeights;
+    private final long[] avatarBucketSizes;
+    private final double[] avatarBucketWeights;
+
+    public DatasetGenerator(SeedProperties properties) {
+        if (properties.getFaculties() <= 0 && properties.getStudents() > 0) {
+            throw new IllegalArgumentException("Students need at least one faculty");
+        }
+        if (properties.getMinAge() > properties.getMaxAge()) {
+            throw new IllegalArgumentException("school.seed.min-age must not exceed school.seed.max-age");
+        }
+        this.properties = properties;
+        this.facultyWeights = cumulative(properties.getFaculties(),
+                rank -> 1.0 / Math.pow(rank + 1, properties.getFacultySizeExponent()));
+
+        List<String> buckets = properties.getAvatarSizes();
+        this.avatarBucketSizes = new long[buckets.size()];
+        List<Double> weights = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            String[] bucket = buckets.get(i).split(":");
+            if (bucket.length != 2) {
+                throw new IllegalArgumentException("Avatar size bucket must look like 16KB:30, got " + buckets.get(i));
+            }
+            avatarBucketSizes[i] = DataSize.parse(bucket[0].trim()).toBytes();
+            weights.add(Double.parseDouble(bucket[1].trim()));
+        }
+        if (avatarBucketSizes.length == 0 && properties.getAvatarShare() > 0) {
+            throw new IllegalArgumentException("school.seed.avatar-sizes is empty but avatar-share is " + properties.getAvatarShare());
+        }
+        this.avatarBucketWeights = cumulative(weights.size(), weights::get);
+    }
+
+    public Stream<FacultyRow> faculties(long firstId) {
+        SplittableRandom random = random(1);
+        return LongStream.range(0, properties.getFaculties()).mapToObj(rank -> {
+            String[] names = random.nextDouble() < properties.getCyrillicShare()
+                    ? CYRILLIC_FACULTY_NAMES : LATIN_FACULTY_NAMES;
+            String name = pick(random, names) + " " + (rank + 1);
+            return new FacultyRow(firstId + rank, name, pick(random, COLORS));
+        });
+    }
+
+    public Stream<StudentRow> students(long firstId, long firstFacultyId) {
+        SplittableRandom random = random(2);
+        int ages = properties.getMaxAge() - properties.getMinAge() + 1;
+        double agePower = 1 + Math.max(0, properties.getAgeSkew());
+        return LongStream.range(0, properties.getStudents()).mapToObj(i -> {
+            boolean cyrillic = random.nextDouble() < properties.getCyrillicShare();
+            String name = cyrillic
+                    ? pick(random, CYRILLIC_FIRST_NAMES) + " " + pick(random, CYRILLIC_LAST_NAMES)
+                    : pick(random, LATIN_FIRST_NAMES) + " " + pick(random, LATIN_LAST_NAMES);
+            int age = properties.getMinAge()
+                    + Math.min(ages - 1, (int) (ages * Math.pow(random.nextDouble(), agePower)));
+            long faculty = firstFacultyId + sample(random, facultyWeights);
+            return new StudentRow(firstId + i, name, age, faculty);
+        });
+    }
+
+    /**
+     * Avatars for about {@code avatarShare} of the students generated with the same {@code firstStudentId}.
+     */
+    public Stream<AvatarRow> avatars(long firstId, long firstStudentId) {
+        SplittableRandom random = random(3);
+        long[] nextId = {firstId};
+        return LongStream.range(0, properties.getStudents())
+                .filter(i -> random.nextDouble() < properties.getAvatarShare())
+                .mapToObj(i -> {
+                    long bucket = avatarBucketSizes[sample(random, avatarBucketWeights)];
+                    int size = (int) Math.max(JPEG_HEADER.length + JPEG_TRAILER.length,
+                            bucket * 3 / 4 + random.nextLong(bucket / 2 + 1));
+                    byte[] data = new byte[size];
+                    random.nextBytes(data);
+                    System.arraycopy(JPEG_HEADER, 0, data, 0, JPEG_HEADER.length);
+                    System.arraycopy(JPEG_TRAILER, 0, data, size - JPEG_TRAILER.length, JPEG_TRAILER.length);
+                    long studentId = firstStudentId + i;
+                    return new AvatarRow(nextId[0]++, "seed/avatar-" + studentId + ".jpg", size,
+                            "image/jpeg", data, studentId);
+                });
+    }
+
+    private SplittableRandom random(int table) {
+        return new SplittableRandom(properties.getSeed() ^ (0x9E3779B97F4A7C15L * table));
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static int sample(SplittableRandom random, double[] cumulative) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+        return Math.min(index >= 0 ? index + 1 : -index - 1, cumulative.length - 1);
+    }
+
+    private static double[] cumulative(int size, IntToDoubleFunction weight) {
+        double[] cumulative = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += weight.applyAsDouble(i);
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,245 @@
+package ru.hogwarts.school.seed;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Loads a {@link DatasetGenerator} dataset straight through JDBC, bypassing JPA and the
+ * change events: Postgres gets {@code COPY}, anything else batched inserts. New rows get
+ * ids after the current maximum and the identity sequences are moved past them, so the
+ * application can keep inserting afterwards. Running instances are not notified; restart
+ * them (or wait for their caches to expire) after seeding.
+ * <p>
+ * Logs rows per second for every table and, for avatars, megabytes per second.
+ * <p>
+ * With deferred indexes, foreign keys, unique constraints and secondary indexes are
+ * dropped for the load and rebuilt afterwards, also when the load fails. A run that is
+ * killed before it gets there leaves them dropped; the statements to recreate them are
+ * logged as "Deferring until after the load".
+ */
+public class DatasetSeeder implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetSeeder.class);
+
+    private static final String[] TABLES = {"faculties", "students", "avatars"};
+
+    private final SeedProperties properties;
+    private final DataSource dataSource;
+    private final ApplicationContext context;
+
+    public DatasetSeeder(SeedProperties properties, DataSource dataSource, ApplicationContext context) {
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException, IOException {
+        DatasetGenerator generator = new DatasetGenerator(properties);
+        logger.info("Seeding {} faculties and {} students (seed {}, avatar share {})",
+                properties.getFaculties(), properties.getStudents(), properties.getSeed(), properties.getAvatarShare());
+
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean copy = connection.isWrapperFor(PGConnection.class);
+            logger.info("Loading through {}", copy ? "COPY" : "batched inserts of " + properties.getBatchSize());
+            if (copy) {
+                // the load is repeatable from the seed, so losing the last commits on a crash is fine
+                execute(connection, "SET synchronous_commit TO off");
+            }
+            try {
+                if (properties.isReplace()) {
+                    replace(connection, copy);
+                }
+                long firstFacultyId = nextId(connection, "faculties");
+                long firstStudentId = nextId(connection, "students");
+                long firstAvatarId = nextId(connection, "avatars");
+                OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+                List<String[]> deferred = copy && properties.isDeferIndexes() ? deferredIndexes(connection) : List.of();
+                List<String[]> dropped = new ArrayList<>();
+                try {
+                    dropIndexes(connection, deferred, dropped);
+                    rows += load(connection, copy, "faculties", generator.faculties(firstFacultyId),
+                            (sink, faculty) -> sink.add(faculty.id(), faculty.name(), faculty.color(), 0L, now),
+                            "id", "name", "color", "version", "updated_at");
+                    rows += load(connection, copy, "students", generator.students(firstStudentId, firstFacultyId),
+                            (sink, student) -> sink.add(student.id(), student.name(), student.age(), student.facultyId(),
+                                    0L, now),
+                            "id", "name", "age", "faculty_id", "version", "updated_at");
+                    long[] avatarBytes = {0};
+                    rows += load(connection, copy, "avatars", generator.avatars(firstAvatarId, firstStudentId),
+                            (sink, avatar) -> {
+                                sink.add(avatar.id(), avatar.filePath(), avatar.fileSize(), avatar.mediaType(),
+                                        avatar.data(), avatar.studentId(), 0L);
+                                avatarBytes[0] += avatar.fileSize();
+                            },
+                            "id", "file_path", "file_size", "media_type", "data", "student_id", "version");
+                    logger.info("Avatar data: {} MB", avatarBytes[0] / (1024 * 1024));
+                } finally {
+                    restoreIndexes(connection, dropped);
+                }
+
+                for (String table : TABLES) {
+                    restartIdentity(connection, copy, table);
+                }
+                if (copy) {
+                    execute(connection, "ANALYZE faculties, students, avatars");
+                }
+            } finally {
+                if (copy) {
+                    execute(connection, "RESET synchronous_commit");
+                }
+            }
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Seeded {} rows in {} ms ({} rows/s)", rows, millis, rows * 1000 / millis);
+
+        if (properties.isExit()) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(RowSink sink, T row) throws SQLException, IOException;
+    }
+
+    private <T> long load(Connection connection, boolean copy, String table, Stream<T> rows, RowWriter<T> writer,
+                          String... columns) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long count = 0;
+        long bytesBefore = copy ? tableSize(connection, table) : 0;
+        try (RowSink sink = copy
+                ? new CopyRowSink(connection.unwrap(PGConnection.class), table, columns)
+                : new BatchRowSink(connection, properties.getBatchSize(), table, columns)) {
+            for (Iterator<T> it = rows.iterator(); it.hasNext(); ) {
+                writer.write(sink, it.next());
+                if (++count % 100_000 == 0) {
+                    logger.debug("{}: {} rows written", table, count);
+                }
+            }
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        if (copy) {
+            long megabytes = (tableSize(connection, table) - bytesBefore) / (1024 * 1024);
+            logger.info("Loaded {} {} in {} ms ({} rows/s, {} MB on disk, {} MB/s)", count, table, millis,
+                    count * 1000 / millis, megabytes, megabytes * 1000 / millis);
+        } else {
+            logger.info("Loaded {} {} in {} ms ({} rows/s)", count, table, millis, count * 1000 / millis);
+        }
+        return count;
+    }
+
+    /**
+     * The {@code {drop, restore}} statement pairs, in drop order, for the foreign keys, unique
+     * constraints and plain indexes (primary keys stay).
+     */
+    private static List<String[]> deferredIndexes(Connection connection) throws SQLException {
+        List<String[]> statements = new ArrayList<>();
+        String tables = "('faculties'::regclass, 'students'::regclass, 'avatars'::regclass)";
+        collect(connection, statements, "SELECT 'ALTER TABLE ' || conrelid::regclass || ' DROP CONSTRAINT ' "
+                + "|| quote_ident(conname), 'ALTER TABLE ' || conrelid::regclass || ' ADD CONSTRAINT ' "
+                + "|| quote_ident(conname) || ' ' || pg_get_constraintdef(oid) FROM pg_constraint "
+                + "WHERE conrelid IN " + tables + " AND contype IN ('f', 'u') ORDER BY contype, conname");
+        collect(connection, statements, "SELECT 'DROP INDEX ' || indexrelid::regclass, pg_get_indexdef(indexrelid) "
+                + "FROM pg_index i WHERE indrelid IN " + tables + " AND NOT indisprimary "
+                + "AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = i.indexrelid) "
+                + "ORDER BY indexrelid::regclass::text");
+        return statements;
+    }
+
+    /**
+     * Adds each statement pair to {@code dropped} once its drop has run, so a failure part-way
+     * through still leaves the caller everything it has to restore.
+     */
+    private static void dropIndexes(Connection connection, List<String[]> statements, List<String[]> dropped)
+            throws SQLException {
+        for (String[] statement : statements) {
+            logger.info("Deferring until after the load: {}", statement[1]);
+            execute(connection, statement[0]);
+            dropped.add(statement);
+        }
+    }
+
+    private static void restoreIndexes(Connection connection, List<String[]> statements) throws SQLException {
+        long start = System.nanoTime();
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            execute(connection, statements.get(i)[1]);
+        }
+        if (!statements.isEmpty()) {
+            logger.info("Rebuilt {} indexes and constraints in {} ms", statements.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static void collect(Connection connection, List<String[]> statements, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                statements.add(new String[]{resultSet.getString(1), resultSet.getString(2)});
+            }
+        }
+    }
+
+    private void replace(Connection connection, boolean postgres) throws SQLException {
+        logger.info("Deleting existing avatars, students and faculties");
+        if (postgres) {
+            execute(connection, "TRUNCATE avatars, students, faculties RESTART IDENTITY");
+        } else {
+            for (int i = TABLES.length - 1; i >= 0; i--) {
+                execute(connection, "DELETE FROM " + TABLES[i]);
+            }
+        }
+    }
+
+    private static long nextId(Connection connection, String table) throws SQLException {
+        return queryForLong(connection, "SELECT COALESCE(MAX(id), 0) + 1 FROM " + table);
+    }
+
+    private static void restartIdentity(Connection connection, boolean postgres, String table) throws SQLException {
+        long next = nextId(connection, table);
+        if (postgres) {
+            queryForLong(connection,
+                    "SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), " + next + ", false)");
+        } else {
+            execute(connection, "ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+        }
+    }
+
+    private static long tableSize(Connection connection, String table) throws SQLException {
+        return queryForLong(connection, "SELECT pg_total_relation_size('" + table + "')");
+    }
+
+    private static long queryForLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
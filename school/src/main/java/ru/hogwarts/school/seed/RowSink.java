@@ -0,0 +1,18 @@
+package ru.hogwarts.school.seed;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of one table, in column order, and writes them in bulk.
+ */
+interface RowSink extends AutoCloseable {
+
+    void add(Object... values) throws SQLException, IOException;
+
+    /**
+     * Writes whatever is still buffered; rows are only guaranteed to be stored after this returns.
+     */
+    @Override
+    void close() throws SQLException, IOException;
+}
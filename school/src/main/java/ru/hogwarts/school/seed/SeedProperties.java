@@ -0,0 +1,191 @@
+package ru.hogwarts.school.seed;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties("school.seed")
+public class SeedProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * The same seed and cardinalities always produce the same rows.
+     */
+    private long seed = 42;
+
+    private int faculties = 1000;
+
+    private int students = 100_000;
+
+    private int minAge = 11;
+
+    private int maxAge = 18;
+
+    /**
+     * 0 spreads ages evenly between min and max; larger values favour the younger years.
+     */
+    private double ageSkew = 1.0;
+
+    /**
+     * Zipf exponent of faculty sizes: 0 gives equal faculties, 1 makes the n-th largest
+     * faculty about 1/n the size of the largest.
+     */
+    private double facultySizeExponent = 1.0;
+
+    /**
+     * Share of students and faculties named in Cyrillic; the rest are Latin.
+     */
+    private double cyrillicShare = 0.5;
+
+    /**
+     * Share of students that get an avatar.
+     */
+    private double avatarShare = 0.1;
+
+    /**
+     * Avatar size histogram as {@code size:weight}; each avatar is within 25% of its bucket's size.
+     */
+    private List<String> avatarSizes = List.of("4KB:50", "16KB:30", "64KB:15", "256KB:5");
+
+    /**
+     * Rows per JDBC batch when the database does not support {@code COPY}.
+     */
+    private int batchSize = 5000;
+
+    /**
+     * On Postgres, drop the foreign keys and secondary indexes of the seeded tables for the
+     * load and rebuild them afterwards, which is several times faster than maintaining them row by row.
+     */
+    private boolean deferIndexes = true;
+
+    /**
+     * Delete all avatars, students and faculties before loading.
+     */
+    private boolean replace = false;
+
+    /**
+     * Stop the application once the data is loaded.
+     */
+    private boolean exit = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getFaculties() {
+        return faculties;
+    }
+
+    public void setFaculties(int faculties) {
+        this.faculties = faculties;
+    }
+
+    public int getStudents() {
+        return students;
+    }
+
+    public void setStudents(int students) {
+        this.students = students;
+    }
+
+    public int getMinAge() {
+        return minAge;
+    }
+
+    public void setMinAge(int minAge) {
+        this.minAge = minAge;
+    }
+
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(int maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public double getAgeSkew() {
+        return ageSkew;
+    }
+
+    public void setAgeSkew(double ageSkew) {
+        this.ageSkew = ageSkew;
+    }
+
+    public double getFacultySizeExponent() {
+        return facultySizeExponent;
+    }
+
+    public void setFacultySizeExponent(double facultySizeExponent) {
+        this.facultySizeExponent = facultySizeExponent;
+    }
+
+    public double getCyrillicShare() {
+        return cyrillicShare;
+    }
+
+    public void setCyrillicShare(double cyrillicShare) {
+        this.cyrillicShare = cyrillicShare;
+    }
+
+    public double getAvatarShare() {
+        return avatarShare;
+    }
+
+    public void setAvatarShare(double avatarShare) {
+        this.avatarShare = avatarShare;
+    }
+
+    public List<String> getAvatarSizes() {
+        return avatarSizes;
+    }
+
+    public void setAvatarSizes(List<String> avatarSizes) {
+        this.avatarSizes = avatarSizes;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isDeferIndexes() {
+        return deferIndexes;
+    }
+
+    public void setDeferIndexes(boolean deferIndexes) {
+        this.deferIndexes = deferIndexes;
+    }
+
+    public boolean isReplace() {
+        return replace;
+    }
+
+    public void setReplace(boolean replace) {
+        this.replace = replace;
+    }
+
+    public boolean isExit() {
+        return exit;
+    }
+
+    public void setExit(boolean exit) {
+        this.exit = exit;
+    }
+}
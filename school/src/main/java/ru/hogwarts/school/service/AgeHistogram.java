@@ -0,0 +1,49 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.dto.AgeDistribution;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Student counts per age, kept only for the ages somebody has, so one outlying age costs
+ * one bucket rather than a bucket for every age in between.
+ */
+final class AgeHistogram {
+
+    private final TreeMap<Integer, Integer> counts = new TreeMap<>();
+    private int students;
+    private long ageSum;
+
+    void add(int age, int count) {
+        counts.merge(age, count, Math::addExact);
+        students = Math.addExact(students, count);
+        ageSum += (long) age * count;
+    }
+
+    AgeDistribution toDistribution(Long facultyId) {
+        if (students == 0) {
+            return new AgeDistribution(facultyId, 0, null, null, null, null, null, Map.of());
+        }
+        return new AgeDistribution(facultyId, students, counts.firstKey(), counts.lastKey(),
+                (double) ageSum / students, percentile(0.5), percentile(0.9),
+                Collections.unmodifiableMap(new LinkedHashMap<>(counts)));
+    }
+
+    /**
+     * The smallest age at or below which at least {@code fraction} of the students are.
+     */
+    int percentile(double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * students));
+        long seen = 0;
+        for (Map.Entry<Integer, Integer> bucket : counts.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return bucket.getKey();
+            }
+        }
+        throw new IllegalStateException("No students in histogram");
+    }
+}
@@ -6,10 +6,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.AvatarContent;
+import ru.hogwarts.school.exception.AvatarNotFoundException;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.repository.AvatarRepository;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 @Service
+@Transactional(readOnly = true)
 public class AvatarService {
 
     private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
@@ -33,8 +41,10 @@ public class AvatarService {
         Pageable pageable = PageRequest.of(validPage, validSize);
         Page<Avatar> avatars = avatarRepository.findAll(pageable);
 
-        logger.debug("Found {} avatars on page {} (total pages: {}, total elements: {})",
-                avatars.getNumberOfElements(), validPage, avatars.getTotalPages(), avatars.getTotalElements());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Found {} avatars on page {} (total pages: {}, total elements: {})",
+                    avatars.getNumberOfElements(), validPage, avatars.getTotalPages(), avatars.getTotalElements());
+        }
 
         if (avatars.isEmpty()) {
             logger.warn("No avatars found in database");
@@ -42,4 +52,43 @@ public class AvatarService {
 
         return avatars;
     }
-}
\ No newline at end of file
+
+    public long getAvatarVersion(Long id) {
+        logger.info("Was invoked method for get avatar version by id = {}", id);
+
+        return avatarRepository.findVersionById(id)
+                .orElseThrow(() -> {
+                    logger.warn("Attempt to access non-existent avatar with id: {}", id);
+                    return new AvatarNotFoundException("Avatar not found with id: " + id);
+                });
+    }
+
+    public AvatarContent getAvatarContent(Long id) {
+        logger.info("Was invoked method for get avatar content by id = {}", id);
+
+        AvatarContent content = avatarRepository.findContentById(id)
+                .orElseThrow(() -> {
+                    logger.warn("Attempt to access non-existent avatar with id: {}", id);
+                    return new AvatarNotFoundException("Avatar not found with id: " + id);
+                });
+        logger.debug("Loaded avatar {} ({} bytes)", id, content.data().length);
+        return content;
+    }
+
+    /**
+     * Feeds the faculty's avatars to {@code action} one row at a time; the transaction
+     * (and the cursor) stays open until the last one has been handled.
+     */
+    public void forEachFacultyAvatar(Long facultyId, Consumer<AvatarContent> action) {
+        logger.info("Was invoked method for stream avatars of faculty id = {}", facultyId);
+
+        AtomicInteger count = new AtomicInteger();
+        try (Stream<AvatarContent> avatars = avatarRepository.streamContentByFacultyId(facultyId)) {
+            avatars.forEach(avatar -> {
+                action.accept(avatar);
+                count.incrementAndGet();
+            });
+        }
+        logger.debug("Streamed {} avatars of faculty {}", count.get(), facultyId);
+    }
+}
@@ -2,37 +2,62 @@ package ru.hogwarts.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.cache.AnalyticsSnapshot;
+import ru.hogwarts.school.cache.FacultySnapshot;
+import ru.hogwarts.school.coalesce.SingleFlight;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.dto.StudentPage;
+import ru.hogwarts.school.event.EntityChangedEvent;
 import ru.hogwarts.school.exception.FacultyNotFoundException;
+import ru.hogwarts.school.exception.InvalidFieldSelectionException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
 
 import java.util.*;
 
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class FacultyService {
 
     private static final Logger logger = LoggerFactory.getLogger(FacultyService.class);
 
+    private static final String STUDENTS_PREFIX = "students.";
+    private static final List<String> DEFAULT_FACULTY_FIELDS = List.of("id", "name", "color");
+    private static final List<String> DEFAULT_STUDENT_FIELDS = List.of("id", "name", "age");
+
     private final FacultyRepository facultyRepository;
+    private final StudentRepository studentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AnalyticsSnapshot analyticsSnapshot;
 
-    public FacultyService(FacultyRepository facultyRepository) {
+    public FacultyService(FacultyRepository facultyRepository, StudentRepository studentRepository,
+                          ApplicationEventPublisher eventPublisher, AnalyticsSnapshot analyticsSnapshot) {
         this.facultyRepository = facultyRepository;
-        logger.debug("FacultyService initialized with repository");
+        this.studentRepository = studentRepository;
+        this.eventPublisher = eventPublisher;
+        this.analyticsSnapshot = analyticsSnapshot;
+        logger.debug("FacultyService initialized with repositories");
     }
 
+    @Transactional
     public Faculty createFaculty(Faculty faculty) {
         logger.info("Was invoked method for create faculty");
         logger.debug("Creating faculty with data: name={}, color={}", faculty.getName(), faculty.getColor());
 
+        faculty.setId(null);
         Faculty savedFaculty = facultyRepository.save(faculty);
+        publish(EntityChangedEvent.Change.CREATED, savedFaculty.getId());
         logger.info("Faculty created successfully with id: {}", savedFaculty.getId());
         return savedFaculty;
     }
 
+    @SingleFlight
     public Faculty getFacultyById(Long id) {
         logger.info("Was invoked method for get faculty by id = {}", id);
         logger.debug("Fetching faculty with id: {}", id);
@@ -45,24 +70,65 @@ public class FacultyService {
                 });
     }
 
+    /**
+     * Throws {@link FacultyNotFoundException} unless the faculty exists, without loading it
+     * (and its eagerly fetched students).
+     */
+    public void checkFacultyExists(Long id) {
+        if (!facultyRepository.existsById(id)) {
+            logger.warn("Attempt to access non-existent faculty with id: {}", id);
+            throw new FacultyNotFoundException("Faculty not found with id: " + id);
+        }
+    }
+
+    @SingleFlight
+    public ResourceVersion getFacultyVersion(Long id) {
+        logger.info("Was invoked method for get faculty version by id = {}", id);
+
+        ResourceVersion version = facultyRepository.findVersionById(id);
+        if (!version.exists()) {
+            logger.warn("Attempt to get version of non-existent faculty with id: {}", id);
+            throw new FacultyNotFoundException("Faculty not found with id: " + id);
+        }
+        ResourceVersion withStudents = version.plus(studentRepository.findVersionByFacultyId(id));
+        logger.debug("Faculty {} version including students: {}", id, withStudents);
+        return withStudents;
+    }
+
+    public ResourceVersion getFacultiesVersion() {
+        logger.info("Was invoked method for get version of all faculties");
+
+        ResourceVersion version = facultyRepository.findVersionOfAll()
+                .plus(studentRepository.findVersionOfFacultyMembers());
+        logger.debug("Faculties version including students: {}", version);
+        return version;
+    }
+
+    @Transactional
     public Faculty updateFaculty(Long id, Faculty faculty) {
         logger.info("Was invoked method for update faculty with id = {}", id);
-        logger.debug("Updating faculty {} with new data: name={}, color={}", id, faculty.getName(), faculty.getColor());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updating faculty {} with new data: name={}, color={}", id, faculty.getName(), faculty.getColor());
+        }
 
-        getFacultyById(id);
+        Faculty existingFaculty = getFacultyById(id);
+        existingFaculty.setName(faculty.getName());
+        existingFaculty.setColor(faculty.getColor());
 
-        faculty.setId(id);
-        Faculty updatedFaculty = facultyRepository.save(faculty);
+        Faculty updatedFaculty = facultyRepository.save(existingFaculty);
+        publish(EntityChangedEvent.Change.UPDATED, id);
         logger.info("Faculty with id {} updated successfully", id);
         return updatedFaculty;
     }
 
+    @Transactional
     public Faculty deleteFaculty(Long id) {
         logger.info("Was invoked method for delete faculty with id = {}", id);
         logger.debug("Deleting faculty with id: {}", id);
 
         Faculty faculty = getFacultyById(id);
         facultyRepository.deleteById(id);
+        publish(EntityChangedEvent.Change.DELETED, id);
         logger.info("Faculty with id {} deleted successfully", id);
         logger.debug("Deleted faculty details: name={}, color={}", faculty.getName(), faculty.getColor());
         return faculty;
@@ -95,19 +161,131 @@ public class FacultyService {
         return faculties;
     }
 
-    public Collection<Student> getStudentsByFacultyId(Long facultyId) {
-        logger.info("Was invoked method for get students by faculty id = {}", facultyId);
-        logger.debug("Getting students for faculty with id: {}", facultyId);
+    /**
+     * One page of a faculty's students ordered by {@code sort} (id, name or age, then id);
+     * {@code after} is the previous page's {@link StudentPage#next()} cursor. Students
+     * without a name come last when sorting by name.
+     */
+    public StudentPage getStudentsByFacultyId(Long facultyId, String sort, String after, Integer limit) {
+        logger.info("Was invoked method for get students by faculty id = {}, sort = {}", facultyId, sort);
+
+        StudentKeyset.Sort order = StudentKeyset.Sort.parse(sort);
+        StudentKeyset.Cursor cursor = after == null ? null : StudentKeyset.Cursor.decode(after, order);
+        int pageSize = (limit == null || limit <= 0) ? StudentService.DEFAULT_PAGE_LIMIT
+                : Math.min(limit, StudentService.MAX_PAGE_LIMIT);
+        long afterId = cursor == null ? 0L : cursor.id();
+
+        List<Student> students = switch (order) {
+            case ID -> studentRepository.findFacultyPageOrderById(facultyId, afterId, Limit.of(pageSize));
+            case AGE -> studentRepository.findFacultyPageOrderByAge(facultyId,
+                    cursor == null ? Integer.MIN_VALUE : cursor.age(), afterId, Limit.of(pageSize));
+            case NAME -> getStudentsByName(facultyId, cursor, pageSize);
+        };
+        if (students.isEmpty() && !facultyRepository.existsById(facultyId)) {
+            logger.warn("Attempt to get students of non-existent faculty with id: {}", facultyId);
+            throw new FacultyNotFoundException("Faculty not found with id: " + facultyId);
+        }
+
+        String next = students.size() < pageSize ? null
+                : StudentKeyset.Cursor.after(order, students.get(students.size() - 1)).encode();
+        logger.debug("Found {} students for faculty id {}, next cursor {}", students.size(), facultyId, next);
+        return new StudentPage(students, next);
+    }
 
-        Faculty faculty = getFacultyById(facultyId);
-        Collection<Student> students = faculty.getStudents();
-        logger.debug("Found {} students for faculty id {}", students.size(), facultyId);
+    private List<Student> getStudentsByName(Long facultyId, StudentKeyset.Cursor cursor, int pageSize) {
+        if (cursor != null && cursor.value() == null) {
+            return studentRepository.findUnnamedFacultyPage(facultyId, cursor.id(), Limit.of(pageSize));
+        }
+        List<Student> students = new ArrayList<>(studentRepository.findFacultyPageOrderByName(facultyId,
+                cursor == null ? "" : cursor.value(), cursor == null ? 0L : cursor.id(), Limit.of(pageSize)));
+        if (students.size() < pageSize) {
+            students.addAll(studentRepository.findUnnamedFacultyPage(facultyId, 0L,
+                    Limit.of(pageSize - students.size())));
+        }
         return students;
     }
 
+    /**
+     * Faculties with only the requested fields. {@code students.<field>} entries or
+     * {@code include=students} embed each faculty's students (id, name, age by default),
+     * fetched for all faculties in one more query.
+     */
+    public List<Map<String, Object>> getFacultyViews(List<String> fields, List<String> include) {
+        logger.info("Was invoked method for get faculty views with fields = {}, include = {}", fields, include);
+
+        List<String> facultyRequested = new ArrayList<>();
+        List<String> studentRequested = new ArrayList<>();
+        if (fields != null) {
+            for (String field : fields) {
+                String name = field.trim();
+                if (name.startsWith(STUDENTS_PREFIX)) {
+                    studentRequested.add(name.substring(STUDENTS_PREFIX.length()));
+                } else {
+                    facultyRequested.add(name);
+                }
+            }
+        }
+        boolean includeStudents = !studentRequested.isEmpty();
+        if (include != null) {
+            for (String relation : include) {
+                if (!"students".equals(relation.trim())) {
+                    throw new InvalidFieldSelectionException("Unknown faculty relation '" + relation.trim()
+                            + "', expected [students]");
+                }
+                includeStudents = true;
+            }
+        }
+
+        List<String> facultyFields = FieldSelection.resolve(facultyRequested, FacultyRepository.FACULTY_FIELDS,
+                DEFAULT_FACULTY_FIELDS, "faculty");
+        if (!includeStudents) {
+            List<Map<String, Object>> views = facultyRepository.findFacultyViews(facultyFields);
+            logger.debug("Found {} faculty views with fields {}", views.size(), facultyFields);
+            return views;
+        }
+
+        List<String> studentFields = FieldSelection.resolve(studentRequested, StudentRepository.STUDENT_FIELDS,
+                DEFAULT_STUDENT_FIELDS, "student");
+        List<Map<String, Object>> views = facultyRepository.findFacultyViews(FieldSelection.with(facultyFields, "id"));
+        Map<Object, List<Map<String, Object>>> studentsByFaculty = new HashMap<>();
+        for (Map<String, Object> view : views) {
+            studentsByFaculty.put(view.get("id"), new ArrayList<>());
+        }
+        if (!views.isEmpty()) {
+            List<Long> facultyIds = views.stream().map(view -> (Long) view.get("id")).toList();
+            for (Map<String, Object> student : studentRepository.findStudentViewsByFacultyIdIn(
+                    facultyIds, FieldSelection.with(studentFields, "facultyId"))) {
+                Object facultyId = studentFields.contains("facultyId")
+                        ? student.get("facultyId") : student.remove("facultyId");
+                studentsByFaculty.get(facultyId).add(student);
+            }
+        }
+        for (Map<String, Object> view : views) {
+            List<Map<String, Object>> students = studentsByFaculty.get(view.get("id"));
+            if (!facultyFields.contains("id")) {
+                view.remove("id");
+            }
+            view.put("students", students);
+        }
+        logger.debug("Found {} faculty views with fields {} and students {}", views.size(), facultyFields, studentFields);
+        return views;
+    }
+
+    @SingleFlight
     public String getLongestFacultyName() {
         logger.info("Was invoked method for get longest faculty name");
 
+        if (analyticsSnapshot.isEnabled()) {
+            FacultySnapshot snapshot = analyticsSnapshot.faculties();
+            if (snapshot.size() == 0) {
+                logger.warn("No faculties found in the analytics snapshot");
+                return null;
+            }
+            String longestName = snapshot.longestName();
+            logger.debug("Longest faculty name from the analytics snapshot: {}", longestName);
+            return longestName;
+        }
+
         List<Faculty> faculties = facultyRepository.findAll();
 
         if (faculties.isEmpty()) {
@@ -125,4 +303,8 @@ public class FacultyService {
                 longestName, longestName != null ? longestName.length() : 0);
         return longestName;
     }
+
+    private void publish(EntityChangedEvent.Change change, Long id) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityChangedEvent.Entity.FACULTY, change, id));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.exception.InvalidFieldSelectionException;
+
+import java.util.*;
+
+/**
+ * Validates a {@code ?fields=} list against what a resource can project.
+ */
+final class FieldSelection {
+
+    private FieldSelection() {
+    }
+
+    /**
+     * Requested fields in request order without duplicates, or {@code defaults} when none were requested.
+     */
+    static List<String> resolve(Collection<String> requested, Set<String> allowed, List<String> defaults,
+                                String resource) {
+        if (requested == null || requested.isEmpty()) {
+            return defaults;
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (String field : requested) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(name)) {
+                throw new InvalidFieldSelectionException("Unknown " + resource + " field '" + name
+                        + "', expected one of " + new TreeSet<>(allowed));
+            }
+            fields.add(name);
+        }
+        return fields.isEmpty() ? defaults : List.copyOf(fields);
+    }
+
+    static List<String> with(List<String> fields, String required) {
+        if (fields.contains(required)) {
+            return fields;
+        }
+        List<String> extended = new ArrayList<>(fields.size() + 1);
+        extended.add(required);
+        extended.addAll(fields);
+        return extended;
+    }
+}
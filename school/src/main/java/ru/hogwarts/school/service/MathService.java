@@ -31,6 +31,10 @@ public class MathService {
         return sum;
     }
 
+    /**
+     * Splits the range over the pool of the calling thread: the compute pool when called
+     * through {@link ru.hogwarts.school.compute.ComputeExecutor}, the common pool otherwise.
+     */
     public long calculateSumParallel() {
         logger.info("Calculating sum using parallel stream");
         long startTime = System.currentTimeMillis();
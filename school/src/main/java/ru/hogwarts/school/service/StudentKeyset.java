@@ -0,0 +1,75 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.exception.InvalidPageRequestException;
+import ru.hogwarts.school.model.Student;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Keyset paging over students: pages are ordered by the sort key and then by id, and the
+ * cursor is the (key, id) pair of the last student on a page. Cursors are handed out as
+ * URL-safe tokens that also name the sort they belong to.
+ */
+final class StudentKeyset {
+
+    enum Sort {
+        ID, NAME, AGE;
+
+        static Sort parse(String sort) {
+            if (sort == null || sort.isBlank()) {
+                return ID;
+            }
+            try {
+                return valueOf(sort.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidPageRequestException("Unknown sort '" + sort + "', expected id, name or age");
+            }
+        }
+    }
+
+    /**
+     * {@code value} is the sort key as text, null for {@link Sort#ID} and for students without a name.
+     */
+    record Cursor(Sort sort, long id, String value) {
+
+        static Cursor after(Sort sort, Student student) {
+            String value = switch (sort) {
+                case ID -> null;
+                case NAME -> student.getName();
+                case AGE -> Integer.toString(student.getAge());
+            };
+            return new Cursor(sort, student.getId(), value);
+        }
+
+        static Cursor decode(String token, Sort sort) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                        .split("\\|", 3);
+                if (parts.length < 2 || !parts[0].equals(sort.name())) {
+                    throw new IllegalArgumentException("cursor of another sort");
+                }
+                Cursor cursor = new Cursor(sort, Long.parseLong(parts[1]), parts.length == 3 ? parts[2] : null);
+                if (sort == Sort.AGE) {
+                    cursor.age();
+                }
+                return cursor;
+            } catch (IllegalArgumentException e) {
+                throw new InvalidPageRequestException("Invalid page cursor for sort " + sort.name().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        String encode() {
+            String raw = sort.name() + "|" + id + (value == null ? "" : "|" + value);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int age() {
+            return Integer.parseInt(value);
+        }
+    }
+
+    private StudentKeyset() {
+    }
+}
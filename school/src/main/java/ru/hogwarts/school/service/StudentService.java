@@ -2,8 +2,18 @@ package ru.hogwarts.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.cache.AnalyticsSnapshot;
+import ru.hogwarts.school.cache.StudentSnapshot;
+import ru.hogwarts.school.coalesce.SingleFlight;
+import ru.hogwarts.school.dto.AgeDistributionReport;
+import ru.hogwarts.school.dto.AgeGroupCount;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.dto.StudentRosterEntry;
+import ru.hogwarts.school.event.EntityChangedEvent;
 import ru.hogwarts.school.exception.FacultyNotFoundException;
 import ru.hogwarts.school.exception.StudentNotFoundException;
 import ru.hogwarts.school.model.Faculty;
@@ -12,23 +22,37 @@ import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class StudentService {
 
     private static final Logger logger = LoggerFactory.getLogger(StudentService.class);
 
+    public static final int DEFAULT_PAGE_LIMIT = 50;
+    public static final int MAX_PAGE_LIMIT = 500;
+
+    private static final List<String> DEFAULT_STUDENT_FIELDS = List.of("id", "name", "age");
+
     private final StudentRepository studentRepository;
     private final FacultyRepository facultyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AnalyticsSnapshot analyticsSnapshot;
 
-    public StudentService(StudentRepository studentRepository, FacultyRepository facultyRepository) {
+    public StudentService(StudentRepository studentRepository, FacultyRepository facultyRepository,
+                          ApplicationEventPublisher eventPublisher, AnalyticsSnapshot analyticsSnapshot) {
         this.studentRepository = studentRepository;
         this.facultyRepository = facultyRepository;
+        this.eventPublisher = eventPublisher;
+        this.analyticsSnapshot = analyticsSnapshot;
         logger.debug("StudentService initialized with repositories");
     }
 
+    @Transactional
     public Student createStudent(Student student) {
         logger.info("Was invoked method for create student");
         logger.debug("Creating student with data: name={}, age={}", student.getName(), student.getAge());
@@ -49,7 +73,9 @@ public class StudentService {
             logger.debug("Faculty found and set for student");
         }
 
+        student.setId(null);
         Student savedStudent = studentRepository.save(student);
+        publish(EntityChangedEvent.Change.CREATED, savedStudent.getId());
         logger.info("Student created successfully with id: {}", savedStudent.getId());
         return savedStudent;
     }
@@ -66,9 +92,24 @@ public class StudentService {
                 });
     }
 
+    public ResourceVersion getStudentVersion(Long id) {
+        logger.info("Was invoked method for get student version by id = {}", id);
+
+        ResourceVersion version = studentRepository.findVersionById(id);
+        if (!version.exists()) {
+            logger.warn("Attempt to get version of non-existent student with id: {}", id);
+            throw new StudentNotFoundException("Student not found with id: " + id);
+        }
+        logger.debug("Student {} version: {}", id, version);
+        return version;
+    }
+
+    @Transactional
     public Student updateStudent(Long id, Student student) {
         logger.info("Was invoked method for update student with id = {}", id);
-        logger.debug("Updating student {} with new data: name={}, age={}", id, student.getName(), student.getAge());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updating student {} with new data: name={}, age={}", id, student.getName(), student.getAge());
+        }
 
         Student existingStudent = getStudentById(id);
         existingStudent.setName(student.getName());
@@ -89,16 +130,19 @@ public class StudentService {
         }
 
         Student updatedStudent = studentRepository.save(existingStudent);
+        publish(EntityChangedEvent.Change.UPDATED, id);
         logger.info("Student with id {} updated successfully", id);
         return updatedStudent;
     }
 
+    @Transactional
     public Student deleteStudent(Long id) {
         logger.info("Was invoked method for delete student with id = {}", id);
         logger.debug("Deleting student with id: {}", id);
 
         Student student = getStudentById(id);
         studentRepository.deleteById(id);
+        publish(EntityChangedEvent.Change.DELETED, id);
         logger.info("Student with id {} deleted successfully", id);
         logger.debug("Deleted student details: name={}, age={}", student.getName(), student.getAge());
         return student;
@@ -113,6 +157,16 @@ public class StudentService {
         return students;
     }
 
+    public List<Map<String, Object>> getStudentViews(List<String> fields) {
+        logger.info("Was invoked method for get student views with fields = {}", fields);
+
+        List<String> selected = FieldSelection.resolve(fields, StudentRepository.STUDENT_FIELDS,
+                DEFAULT_STUDENT_FIELDS, "student");
+        List<Map<String, Object>> views = studentRepository.findStudentViews(selected);
+        logger.debug("Found {} student views with fields {}", views.size(), selected);
+        return views;
+    }
+
     public Collection<Student> getStudentsByAge(int age) {
         logger.info("Was invoked method for get students by age = {}", age);
         logger.debug("Filtering students by age: {}", age);
@@ -127,7 +181,9 @@ public class StudentService {
         logger.debug("Filtering students by age range: {} - {}", min, max);
 
         Collection<Student> students = studentRepository.findByAgeBetween(min, max);
-        logger.debug("Found {} students in age range {} - {}", students.size(), min, max);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Found {} students in age range {} - {}", students.size(), min, max);
+        }
         return students;
     }
 
@@ -148,6 +204,7 @@ public class StudentService {
         return faculty;
     }
 
+    @SingleFlight
     public Integer getTotalNumberOfStudents() {
         logger.info("Was invoked method for get total number of students");
 
@@ -156,10 +213,19 @@ public class StudentService {
         return count;
     }
 
+    @SingleFlight
     public Double getAverageAge() {
         logger.info("Was invoked method for get average age of students");
 
-        Double averageAge = studentRepository.getAverageAge();
+        // until the snapshot has loaded in the background, one aggregate beats reading every row
+        StudentSnapshot snapshot = analyticsSnapshot.isEnabled() ? analyticsSnapshot.studentsIfLoaded() : null;
+        Double averageAge;
+        if (snapshot != null) {
+            double average = snapshot.averageAge();
+            averageAge = Double.isNaN(average) ? null : average;
+        } else {
+            averageAge = studentRepository.getAverageAge();
+        }
         logger.debug("Average age of students: {}", averageAge);
 
         if (averageAge == null) {
@@ -169,6 +235,41 @@ public class StudentService {
         return averageAge;
     }
 
+    /**
+     * Age histograms and percentiles of all students and of every faculty (or of one
+     * faculty) from a single {@code GROUP BY faculty, age} query.
+     */
+    @SingleFlight
+    public AgeDistributionReport getAgeDistribution(Long facultyId) {
+        logger.info("Was invoked method for get age distribution of faculty id = {}", facultyId);
+
+        List<AgeGroupCount> groups = facultyId == null
+                ? studentRepository.countByFacultyAndAge()
+                : studentRepository.countByAgeInFaculty(facultyId);
+        if (facultyId != null && groups.isEmpty() && !facultyRepository.existsById(facultyId)) {
+            logger.warn("Attempt to get age distribution of non-existent faculty with id: {}", facultyId);
+            throw new FacultyNotFoundException("Faculty not found with id: " + facultyId);
+        }
+
+        AgeHistogram overall = new AgeHistogram();
+        Map<Long, AgeHistogram> byFaculty = new TreeMap<>();
+        if (facultyId != null) {
+            byFaculty.put(facultyId, new AgeHistogram());
+        }
+        for (AgeGroupCount group : groups) {
+            int count = Math.toIntExact(group.count());
+            overall.add(group.age(), count);
+            if (group.facultyId() != null) {
+                byFaculty.computeIfAbsent(group.facultyId(), id -> new AgeHistogram()).add(group.age(), count);
+            }
+        }
+
+        AgeDistributionReport report = new AgeDistributionReport(overall.toDistribution(facultyId),
+                byFaculty.entrySet().stream().map(e -> e.getValue().toDistribution(e.getKey())).toList());
+        logger.debug("Aggregated {} age groups into {} faculty distributions", groups.size(), byFaculty.size());
+        return report;
+    }
+
     public List<Student> getLastFiveStudents() {
         logger.info("Was invoked method for get last five students");
 
@@ -180,6 +281,12 @@ public class StudentService {
     public List<String> getStudentsNamesStartingWithA() {
         logger.info("Was invoked method for get students names starting with 'A'");
 
+        if (analyticsSnapshot.isEnabled()) {
+            List<String> names = analyticsSnapshot.students().upperCaseNamesStartingWith('A', 'А');
+            logger.debug("Found {} students names starting with 'A' in the analytics snapshot", names.size());
+            return names;
+        }
+
         List<String> names = studentRepository.findAll().stream()
                 .map(Student::getName)
                 .filter(name -> name != null && !name.isEmpty() &&
@@ -195,6 +302,17 @@ public class StudentService {
     public Double getAverageAgeUsingFindAll() {
         logger.info("Was invoked method for get average age using findAll()");
 
+        if (analyticsSnapshot.isEnabled()) {
+            StudentSnapshot snapshot = analyticsSnapshot.students();
+            if (snapshot.size() == 0) {
+                logger.warn("No students found in the analytics snapshot");
+                return 0.0;
+            }
+            double averageAge = snapshot.averageAge();
+            logger.debug("Average age calculated from the analytics snapshot: {}", averageAge);
+            return averageAge;
+        }
+
         List<Student> students = studentRepository.findAll();
 
         if (students.isEmpty()) {
@@ -210,4 +328,43 @@ public class StudentService {
         logger.debug("Average age calculated using findAll: {}", averageAge);
         return averageAge;
     }
+
+    public List<StudentRosterEntry> getStudentsWithAvatar(Long after, Integer limit) {
+        logger.info("Was invoked method for get students with avatar after id = {}", after);
+
+        List<StudentRosterEntry> students = studentRepository.findWithAvatarAfter(
+                after == null ? 0L : after, Limit.of(validLimit(limit)));
+        logger.debug("Found {} students with avatar after id {}", students.size(), after);
+        return students;
+    }
+
+    public List<StudentRosterEntry> getRoster(Long after, Integer limit) {
+        logger.info("Was invoked method for get roster after id = {}", after);
+
+        List<StudentRosterEntry> roster = studentRepository.findRosterAfter(
+                after == null ? 0L : after, Limit.of(validLimit(limit)));
+        logger.debug("Found {} roster entries after id {}", roster.size(), after);
+        return roster;
+    }
+
+    public void forEachRosterEntry(Consumer<StudentRosterEntry> action) {
+        logger.info("Was invoked method for stream student roster");
+
+        AtomicInteger count = new AtomicInteger();
+        try (Stream<StudentRosterEntry> roster = studentRepository.streamRoster()) {
+            roster.forEach(entry -> {
+                action.accept(entry);
+                count.incrementAndGet();
+            });
+        }
+        logger.debug("Streamed {} roster entries", count.get());
+    }
+
+    private static int validLimit(Integer limit) {
+        return (limit == null || limit <= 0) ? DEFAULT_PAGE_LIMIT : Math.min(limit, MAX_PAGE_LIMIT);
+    }
+
+    private void publish(EntityChangedEvent.Change change, Long id) {
+        eventPublisher.publishEvent(new EntityChangedEvent(EntityChangedEvent.Entity.STUDENT, change, id));
+    }
 }
\ No newline at end of file
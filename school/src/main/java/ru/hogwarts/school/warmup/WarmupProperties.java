@@ -0,0 +1,72 @@
+package ru.hogwarts.school.warmup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("school.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Upper bound for the whole warm-up; it ends at whichever of duration and iterations comes first.
+     */
+    private Duration duration = Duration.ofSeconds(20);
+
+    /**
+     * Rounds over the hot paths, 0 for no limit.
+     */
+    private int iterations = 0;
+
+    /**
+     * Whether rounds also run the /math strategies.
+     */
+    private boolean math = true;
+
+    /**
+     * Most rows a warm-up call may read (capped by the largest student page), so a single
+     * call on a large database cannot run far past the duration.
+     */
+    private int maxRoundRows = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public boolean isMath() {
+        return math;
+    }
+
+    public void setMath(boolean math) {
+        this.math = math;
+    }
+
+    public int getMaxRoundRows() {
+        return maxRoundRows;
+    }
+
+    public void setMaxRoundRows(int maxRoundRows) {
+        this.maxRoundRows = maxRoundRows;
+    }
+}
@@ -0,0 +1,187 @@
+package ru.hogwarts.school.warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import ru.hogwarts.school.dto.StudentRosterEntry;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.MathService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the hot read paths (student and faculty lookups, JSON serialization, the /math
+ * strategies) in-process before the application reports ready. Boot only publishes
+ * {@code ReadinessState.ACCEPTING_TRAFFIC} after all runners have returned, so the
+ * readiness probe keeps the instance out of rotation until warm-up is over.
+ * <p>
+ * Uses whatever students and faculties exist and falls back to serializing synthetic
+ * ones on an empty database; nothing is written. The duration is checked before every call,
+ * so it is overrun by one call at most, and no call reads more than {@code max-round-rows}.
+ */
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmupRunner.class);
+
+    private static final int SAMPLE_ROUNDS = 10;
+    private static final int SAMPLE_STUDENTS = 5;
+
+    private final WarmupProperties properties;
+    private final StudentService studentService;
+    private final FacultyService facultyService;
+    private final MathService mathService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private volatile long durationNanos;
+    private volatile long firstRoundsNanos;
+    private volatile long lastRoundsNanos;
+
+    public WarmupRunner(WarmupProperties properties, StudentService studentService, FacultyService facultyService,
+                        MathService mathService, ObjectMapper objectMapper, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.studentService = studentService;
+        this.facultyService = facultyService;
+        this.mathService = mathService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info("Warming up for at most {} ({} iterations), readiness follows when done",
+                properties.getDuration(), properties.getIterations() > 0 ? properties.getIterations() : "unlimited");
+
+        List<Long> rounds = new ArrayList<>();
+        long start = System.nanoTime();
+        long deadline = start + properties.getDuration().toNanos();
+        try {
+            List<Step> steps = plan();
+            while (properties.getIterations() <= 0 || rounds.size() < properties.getIterations()) {
+                long roundStart = System.nanoTime();
+                for (Step step : steps) {
+                    if (System.nanoTime() >= deadline) {
+                        throw new DeadlineReached();
+                    }
+                    step.run();
+                }
+                rounds.add(System.nanoTime() - roundStart);
+            }
+        } catch (DeadlineReached e) {
+            logger.debug("Warm-up reached its deadline after {} rounds", rounds.size());
+        } catch (RuntimeException | JsonProcessingException e) {
+            logger.warn("Warm-up stopped after {} rounds: {}", rounds.size(), e.toString());
+        }
+        durationNanos = System.nanoTime() - start;
+
+        if (rounds.isEmpty()) {
+            return;
+        }
+        int window = Math.max(1, Math.min(SAMPLE_ROUNDS, rounds.size() / 2));
+        firstRoundsNanos = average(rounds.subList(0, window));
+        lastRoundsNanos = average(rounds.subList(rounds.size() - window, rounds.size()));
+        registerMeters();
+        logger.info("Warm-up finished in {} ms after {} rounds, round latency {} us -> {} us",
+                TimeUnit.NANOSECONDS.toMillis(durationNanos), rounds.size(),
+                TimeUnit.NANOSECONDS.toMicros(firstRoundsNanos), TimeUnit.NANOSECONDS.toMicros(lastRoundsNanos));
+    }
+
+    /**
+     * The calls of one round, all of them bounded: lists are read a page of at most
+     * {@code max-round-rows} at a time, and a faculty, or a student (which brings its
+     * faculty), is only loaded as an entity when the faculty's first page shows that all of
+     * its students fit. Aggregates over a whole table are left out, they scan every row on a
+     * large database.
+     */
+    private List<Step> plan() {
+        int pageLimit = Math.max(1, Math.min(properties.getMaxRoundRows(), StudentService.MAX_PAGE_LIMIT));
+        List<Step> steps = new ArrayList<>();
+
+        steps.add(() -> objectMapper.writeValueAsBytes(studentService.getRoster(null, pageLimit)));
+        List<StudentRosterEntry> sample = studentService.getRoster(null, SAMPLE_STUDENTS);
+        Map<Long, Boolean> smallFaculties = new LinkedHashMap<>();
+        for (StudentRosterEntry student : sample) {
+            if (student.facultyId() != null && !smallFaculties.containsKey(student.facultyId())) {
+                Long facultyId = student.facultyId();
+                steps.add(() -> objectMapper.writeValueAsBytes(
+                        facultyService.getStudentsByFacultyId(facultyId, null, null, pageLimit).students()));
+                boolean small = facultyService.getStudentsByFacultyId(facultyId, null, null, pageLimit).next() == null;
+                smallFaculties.put(facultyId, small);
+                if (small) {
+                    steps.add(() -> objectMapper.writeValueAsBytes(facultyService.getFacultyById(facultyId)));
+                    steps.add(() -> facultyService.getFacultyVersion(facultyId));
+                }
+            }
+        }
+        for (StudentRosterEntry student : sample) {
+            if (student.facultyId() == null || smallFaculties.get(student.facultyId())) {
+                steps.add(() -> objectMapper.writeValueAsBytes(studentService.getStudentById(student.id())));
+            }
+            steps.add(() -> studentService.getStudentVersion(student.id()));
+        }
+
+        if (sample.isEmpty()) {
+            steps.add(() -> objectMapper.writeValueAsBytes(syntheticStudents()));
+        }
+
+        if (properties.isMath()) {
+            steps.add(mathService::calculateSumFormula);
+            steps.add(mathService::calculateSumRange);
+            steps.add(mathService::calculateSumParallel);
+            steps.add(mathService::calculateSumSlow);
+        }
+        logger.debug("Warm-up rounds make {} calls", steps.size());
+        return steps;
+    }
+
+    private static List<Student> syntheticStudents() {
+        Faculty faculty = new Faculty(0L, "Gryffindor", "red");
+        List<Student> students = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            students.add(new Student((long) i, "Student " + i, 11 + i, faculty));
+        }
+        return students;
+    }
+
+    private void registerMeters() {
+        if (meterRegistry == null) {
+            return;
+        }
+        TimeGauge.builder("school.warmup.duration", this, TimeUnit.NANOSECONDS, runner -> runner.durationNanos)
+                .register(meterRegistry);
+        TimeGauge.builder("school.warmup.round", this, TimeUnit.NANOSECONDS, runner -> runner.firstRoundsNanos)
+                .tag("phase", "first")
+                .register(meterRegistry);
+        TimeGauge.builder("school.warmup.round", this, TimeUnit.NANOSECONDS, runner -> runner.lastRoundsNanos)
+                .tag("phase", "last")
+                .register(meterRegistry);
+    }
+
+    private static long average(List<Long> values) {
+        return (long) values.stream().mapToLong(Long::longValue).average().orElse(0);
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws JsonProcessingException;
+    }
+
+    private static class DeadlineReached extends RuntimeException {
+        DeadlineReached() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ru.hogwarts.school.web;
+
+import org.springframework.util.MimeType;
+import ru.hogwarts.school.dto.AvatarContent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes avatars as STORED entries (images are already compressed) straight to the
+ * response stream. Only the avatar being written is held in memory.
+ */
+public class AvatarZipWriter implements Consumer<AvatarContent> {
+
+    private final ZipOutputStream zip;
+
+    public AvatarZipWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(out);
+    }
+
+    @Override
+    public void accept(AvatarContent avatar) {
+        byte[] data = avatar.data();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ZipEntry entry = new ZipEntry("student-" + avatar.studentId() + "-avatar-" + avatar.id() + extension(avatar));
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        try {
+            zip.putNextEntry(entry);
+            zip.write(data);
+            zip.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() throws IOException {
+        zip.finish();
+    }
+
+    private static String extension(AvatarContent avatar) {
+        if (avatar.mediaType() == null) {
+            return "";
+        }
+        String subtype = MimeType.valueOf(avatar.mediaType()).getSubtype();
+        return "." + ("jpeg".equals(subtype) ? "jpg" : subtype);
+    }
+}
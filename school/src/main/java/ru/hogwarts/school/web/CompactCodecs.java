@@ -0,0 +1,82 @@
+package ru.hogwarts.school.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+
+/**
+ * Jackson mappers for the JSON representation and its compact binary equivalents
+ * (Smile, CBOR). All three come from the same builder, so annotations, modules and
+ * naming behave identically; only the wire encoding differs.
+ */
+public class CompactCodecs {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final List<MediaType> PRODUCIBLE =
+            List.of(MediaType.APPLICATION_JSON, APPLICATION_SMILE, MediaType.APPLICATION_CBOR);
+
+    private final ObjectMapper json;
+    private final ObjectMapper smile;
+    private final ObjectMapper cbor;
+
+    public CompactCodecs(ObjectMapper json, ObjectMapper smile, ObjectMapper cbor) {
+        this.json = json;
+        this.smile = smile;
+        this.cbor = cbor;
+    }
+
+    /**
+     * The most preferred of JSON, Smile and CBOR acceptable to the client; JSON when the
+     * header is absent, malformed or names none of them specifically.
+     */
+    public MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+            // MediaType orders by quality first, then specificity; more than 50 entries are rejected
+            MimeTypeUtils.sortBySpecificity(accepted);
+        } catch (IllegalArgumentException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        for (MediaType type : accepted) {
+            if (type.isWildcardType() || type.isWildcardSubtype()) {
+                continue;
+            }
+            for (MediaType producible : PRODUCIBLE) {
+                if (producible.isCompatibleWith(type)) {
+                    return producible;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    public boolean isBinary(MediaType type) {
+        return !MediaType.APPLICATION_JSON.isCompatibleWith(type);
+    }
+
+    public ObjectMapper mapperFor(MediaType type) {
+        if (APPLICATION_SMILE.isCompatibleWith(type)) {
+            return smile;
+        }
+        if (MediaType.APPLICATION_CBOR.isCompatibleWith(type)) {
+            return cbor;
+        }
+        return json;
+    }
+
+    public ObjectMapper smile() {
+        return smile;
+    }
+
+    public ObjectMapper cbor() {
+        return cbor;
+    }
+}
@@ -0,0 +1,131 @@
+package ru.hogwarts.school.web;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.hogwarts.school.jdbc.QueryStats;
+import ru.hogwarts.school.jdbc.QueryStatsHolder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.Map;
+
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-Query-Count";
+    public static final String ROWS_HEADER = "X-Query-Rows";
+    public static final String TIME_HEADER = "X-Query-Time-Ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final int maxStatements;
+    private final int repeatThreshold;
+
+    public QueryCountFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                            @Value("${school.query-stats.max-statements:10}") int maxStatements,
+                            @Value("${school.query-stats.repeat-threshold:3}") int repeatThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryStatsHolder.start();
+        try {
+            filterChain.doFilter(request, new StatsHeaderResponse(response, stats));
+        } finally {
+            QueryStatsHolder.clear();
+            report(request, response, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, HttpServletResponse response, QueryStats stats) {
+        writeHeaders(response, stats);
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            DistributionSummary.builder("school.http.sql.statements")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(registry)
+                    .record(stats.getStatements());
+            DistributionSummary.builder("school.http.sql.rows")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(registry)
+                    .record(stats.getRowsFetched());
+            Timer.builder("school.http.sql.time")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .register(registry)
+                    .record(Duration.ofMillis(stats.getElapsedMillis()));
+        }
+
+        if (stats.getStatements() > maxStatements) {
+            logger.warn("{} {} executed {} SQL statements (budget {}), fetched {} rows in {} ms",
+                    request.getMethod(), uri, stats.getStatements(), maxStatements,
+                    stats.getRowsFetched(), stats.getElapsedMillis());
+        }
+        Map<String, Integer> repeated = stats.getRepeatedStatements(repeatThreshold);
+        if (!repeated.isEmpty()) {
+            repeated.forEach((sql, count) ->
+                    logger.warn("{} {} executed the same statement {} times, possible N+1: {}",
+                            request.getMethod(), uri, count, sql));
+        }
+    }
+
+    private static void writeHeaders(HttpServletResponse response, QueryStats stats) {
+        if (response.isCommitted() || response.containsHeader(STATEMENTS_HEADER)) {
+            return;
+        }
+        response.setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+        response.setHeader(ROWS_HEADER, String.valueOf(stats.getRowsFetched()));
+        response.setHeader(TIME_HEADER, String.valueOf(stats.getElapsedMillis()));
+    }
+
+    private static class StatsHeaderResponse extends HttpServletResponseWrapper {
+
+        private final QueryStats stats;
+
+        StatsHeaderResponse(HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders((HttpServletResponse) getResponse(), stats);
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders((HttpServletResponse) getResponse(), stats);
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders((HttpServletResponse) getResponse(), stats);
+            super.flushBuffer();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package ru.hogwarts.school.batch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.exception.FacultyNotFoundException;
+import ru.hogwarts.school.exception.StudentBatchUnavailableException;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.service.StudentService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1",
+        "logging.level.ru.hogwarts.school=WARN"
+})
+@ActiveProfiles("test")
+class StudentBatchWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<StudentBatchWriter> writers = new ArrayList<>();
+    private Faculty faculty;
+
+    @BeforeEach
+    void setUp() {
+        faculty = facultyRepository.save(new Faculty(null, "Batch " + System.nanoTime(), "red"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        writers.forEach(StudentBatchWriter::stop);
+        callers.shutdownNow();
+    }
+
+    @Test
+    void shouldGiveEveryCallerItsOwnStudent() throws Exception {
+        StudentBatchWriter writer = start(properties(4, Duration.ofSeconds(5), 100), facultyRepository);
+
+        List<Future<Student>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(create(writer, "Caller " + i, faculty.getId()));
+        }
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            Student student = results.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals("Caller " + i, student.getName());
+            assertEquals(faculty.getId(), student.getFaculty().getId());
+            ids.add(student.getId());
+        }
+        assertEquals(4, ids.size());
+        assertEquals(1, meterRegistry.get("school.student.batch.size").summary().count());
+        assertEquals(4, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM students WHERE faculty_id = ?", Integer.class, faculty.getId()));
+    }
+
+    @Test
+    void shouldFailOnlyTheStudentWithAMissingFaculty() throws Exception {
+        StudentBatchWriter writer = start(properties(3, Duration.ofSeconds(5), 100), facultyRepository);
+
+        Future<Student> first = create(writer, "First", faculty.getId());
+        Future<Student> missing = create(writer, "Missing", Long.MAX_VALUE);
+        Future<Student> last = create(writer, "Last", null);
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(last.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> missing.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(FacultyNotFoundException.class, failure.getCause());
+        assertEquals(1, meterRegistry.get("school.student.batch.size").summary().count());
+    }
+
+    @Test
+    void shouldRetryAFailedBatchOneStudentAtATime() throws Exception {
+        StudentBatchWriter writer = start(properties(3, Duration.ofSeconds(5), 100), facultyRepository);
+
+        // longer than the name column, so the batch insert as a whole fails
+        Future<Student> first = create(writer, "First", faculty.getId());
+        Future<Student> tooLong = create(writer, "x".repeat(300), faculty.getId());
+        Future<Student> last = create(writer, "Last", faculty.getId());
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(last.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> tooLong.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataAccessException.class, failure.getCause());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM students WHERE faculty_id = ?", Integer.class, faculty.getId()));
+    }
+
+    @Test
+    void shouldCreateOnTheCallersThreadWhenStopped() {
+        StudentBatchWriter writer = new StudentBatchWriter(properties(4, Duration.ofMillis(5), 100), jdbcTemplate,
+                new TransactionTemplate(transactionManager), facultyRepository, studentService, eventPublisher,
+                meterRegistry);
+
+        Student student = writer.createStudent(new Student(null, "Stopped", 12, faculty));
+
+        assertNotNull(student.getId());
+        assertEquals(1, meterRegistry.get("school.student.batch.bypassed").counter().count());
+    }
+
+    @Test
+    void shouldCreateOnTheCallersThreadWhenTheQueueIsFull() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        StudentBatchWriter writer = start(properties(1, Duration.ZERO, 1), blockingFacultyRepository(flushing));
+
+        Future<Student> inFlush = create(writer, "In flush", faculty.getId());
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        Future<Student> queued = create(writer, "Queued", null);
+        awaitQueued(1);
+
+        Student bypassed = writer.createStudent(new Student(null, "Bypassed", 12, null));
+        assertNotNull(bypassed.getId());
+        assertEquals(1, meterRegistry.get("school.student.batch.bypassed").counter().count());
+
+        release.countDown();
+        assertNotNull(inFlush.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(queued.get(5, TimeUnit.SECONDS).getId());
+    }
+
+    @Test
+    void shouldStopWaitingAfterTheResultTimeout() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        StudentBatchProperties properties = properties(1, Duration.ZERO, 100);
+        properties.setResultTimeout(Duration.ofMillis(200));
+        StudentBatchWriter writer = start(properties, blockingFacultyRepository(flushing));
+
+        Future<Student> result = create(writer, "Slow", faculty.getId());
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StudentBatchUnavailableException.class, failure.getCause());
+    }
+
+    @Test
+    void shouldFailTheBatchWhenTheWriterIsInterrupted() throws Exception {
+        StudentBatchWriter writer = start(properties(10, Duration.ofSeconds(30), 100), facultyRepository);
+
+        Future<Student> lingering = create(writer, "Lingering", null);
+        awaitQueued(0);
+        Thread.sleep(100);
+        writerThread().interrupt();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> lingering.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StudentBatchUnavailableException.class, failure.getCause());
+    }
+
+    private StudentBatchWriter start(StudentBatchProperties properties, FacultyRepository faculties) {
+        StudentBatchWriter writer = new StudentBatchWriter(properties, jdbcTemplate,
+                new TransactionTemplate(transactionManager), faculties, studentService, eventPublisher, meterRegistry);
+        writers.add(writer);
+        writer.start();
+        return writer;
+    }
+
+    private static StudentBatchProperties properties(int maxBatchSize, Duration linger, int queueCapacity) {
+        StudentBatchProperties properties = new StudentBatchProperties();
+        properties.setMaxBatchSize(maxBatchSize);
+        properties.setLinger(linger);
+        properties.setQueueCapacity(queueCapacity);
+        return properties;
+    }
+
+    /**
+     * Holds the flusher inside its faculty lookup until the test releases it.
+     */
+    private FacultyRepository blockingFacultyRepository(CountDownLatch flushing) {
+        FacultyRepository blocking = mock(FacultyRepository.class);
+        when(blocking.findSummariesByIdIn(any())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return facultyRepository.findSummariesByIdIn(invocation.getArgument(0));
+        });
+        return blocking;
+    }
+
+    private Future<Student> create(StudentBatchWriter writer, String name, Long facultyId) throws InterruptedException {
+        Future<Student> result = callers.submit(() -> writer.createStudent(
+                new Student(null, name, 12, facultyId == null ? null : new Faculty(facultyId, null, null))));
+        // keeps the callers in submission order within the batch
+        Thread.sleep(20);
+        return result;
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("school.student.batch.queued").gauge().value() != expected) {
+            assertTrue(System.nanoTime() < deadline, "queue never reached " + expected);
+            Thread.sleep(10);
+        }
+    }
+
+    private static Thread writerThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("student-batch-writer"))
+                .findFirst()
+                .orElseThrow();
+    }
+}
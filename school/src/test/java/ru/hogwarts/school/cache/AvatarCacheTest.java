@@ -0,0 +1,97 @@
+package ru.hogwarts.school.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.dto.AvatarContent;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void shouldKeepCachedAvatarsInDirectMemory() {
+        AvatarCache cache = cache(true);
+
+        AvatarCache.CachedAvatar first = cache.get(1L, id -> load(id, 16));
+        AvatarCache.CachedAvatar second = cache.get(1L, id -> load(id, 16));
+
+        assertTrue(first.data().isDirect());
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertArrayEquals(bytes(16), contentOf(first.data()));
+    }
+
+    @Test
+    void shouldServeOversizedAvatarsFromTheHeap() {
+        AvatarCache cache = cache(true);
+
+        AvatarCache.CachedAvatar avatar = cache.get(1L, id -> load(id, 64));
+
+        assertFalse(avatar.data().isDirect());
+        assertArrayEquals(bytes(64), contentOf(avatar.data()));
+        assertNull(cache.peek(1L));
+    }
+
+    @Test
+    void shouldServeFromTheHeapWhenDisabled() {
+        AvatarCache cache = cache(false);
+
+        AvatarCache.CachedAvatar avatar = cache.get(1L, id -> load(id, 16));
+
+        assertFalse(avatar.data().isDirect());
+        assertArrayEquals(bytes(16), contentOf(avatar.data()));
+        cache.get(1L, id -> load(id, 16));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldCountEachServedAvatarOnce() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", registry);
+        AvatarCache cache = new AvatarCache(beans.getBeanProvider(MeterRegistry.class), true,
+                DataSize.ofKilobytes(1), DataSize.ofBytes(32));
+
+        // what the controller does per request: peek for the ETag, then get the body
+        for (int i = 0; i < 2; i++) {
+            cache.peek(1L);
+            cache.get(1L, id -> load(id, 16));
+        }
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(0.5, registry.get("school.avatar.cache.hit.ratio").gauge().value());
+    }
+
+    private static AvatarCache cache(boolean enabled) {
+        return new AvatarCache(new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), enabled,
+                DataSize.ofKilobytes(1), DataSize.ofBytes(32));
+    }
+
+    private AvatarContent load(Long id, int size) {
+        loads.incrementAndGet();
+        return new AvatarContent(id, 10L, "image/png", 1L, bytes(size));
+    }
+
+    private static byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    private static byte[] contentOf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
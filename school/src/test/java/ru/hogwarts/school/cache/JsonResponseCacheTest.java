@@ -0,0 +1,76 @@
+package ru.hogwarts.school.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.event.EntityChangedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonResponseCacheTest {
+
+    private static final Set<EntityChangedEvent.Entity> DEPENDS_ON =
+            EnumSet.of(EntityChangedEvent.Entity.FACULTY, EntityChangedEvent.Entity.STUDENT);
+    private static final ResourceVersion V1 = new ResourceVersion(1L, 1L, Instant.parse("2026-10-01T10:00:00Z"));
+    private static final ResourceVersion V2 = new ResourceVersion(1L, 2L, Instant.parse("2026-10-01T11:00:00Z"));
+
+    private final JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(),
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), true, true);
+
+    @Test
+    void shouldServeTheVersionStoredWithTheBody() {
+        JsonResponseCache.CachedJson first = cache.get("faculties", DEPENDS_ON, () -> V1, version -> false,
+                () -> List.of("old"));
+        JsonResponseCache.CachedJson second = cache.get("faculties", DEPENDS_ON, () -> V2, version -> false,
+                () -> List.of("new"));
+
+        assertSame(first, second);
+        assertEquals(V1, second.version());
+        assertEquals("[\"old\"]", new String(second.json(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldNotLoadTheBodyWhenTheVersionIsNotModified() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get("faculties", DEPENDS_ON, () -> V1, V1::equals, () -> loads.incrementAndGet()));
+        assertEquals(0, loads.get());
+        assertNotNull(cache.get("faculties", DEPENDS_ON, () -> V1, version -> false, () -> loads.incrementAndGet()));
+        assertNull(cache.get("faculties", DEPENDS_ON, () -> V2, V1::equals, () -> loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldNotKeepAResponseLoadedWhileADependencyChanged() {
+        JsonResponseCache.CachedJson loaded = cache.get("faculties", DEPENDS_ON, () -> V1, version -> false, () -> {
+            cache.onEntityChanged(new EntityChangedEvent(EntityChangedEvent.Entity.STUDENT,
+                    EntityChangedEvent.Change.UPDATED, 1L));
+            return List.of("old");
+        });
+        JsonResponseCache.CachedJson reloaded = cache.get("faculties", DEPENDS_ON, () -> V2, version -> false,
+                () -> List.of("new"));
+
+        assertEquals(V1, loaded.version());
+        assertEquals(V2, reloaded.version());
+        assertEquals("[\"new\"]", new String(reloaded.json(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldKeepResponsesThatDoNotDependOnTheChangedEntity() {
+        JsonResponseCache.CachedJson first = cache.get("faculties", DEPENDS_ON, () -> V1, version -> false,
+                () -> List.of("faculties"));
+        cache.onEntityChanged(new EntityChangedEvent(EntityChangedEvent.Entity.AVATAR,
+                EntityChangedEvent.Change.CREATED, 1L));
+
+        assertSame(first, cache.get("faculties", DEPENDS_ON, () -> V2, version -> false, List::of));
+    }
+}
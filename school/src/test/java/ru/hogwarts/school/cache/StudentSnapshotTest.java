@@ -0,0 +1,122 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.StudentSnapshotRow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentSnapshotTest {
+
+    @Test
+    void shouldAnswerFromColumns() {
+        StudentSnapshot snapshot = snapshot(
+                new StudentSnapshotRow(1L, "Harry Potter", 11, 1L),
+                new StudentSnapshotRow(2L, "anna Ivanova", 13, null),
+                new StudentSnapshotRow(3L, "Александр", 16, 2L),
+                new StudentSnapshotRow(4L, null, 12, 2L));
+
+        assertEquals(4, snapshot.size());
+        assertEquals(13.0, snapshot.averageAge());
+        assertEquals(List.of("ANNA IVANOVA", "АЛЕКСАНДР"), snapshot.upperCaseNamesStartingWith('A', 'А'));
+        assertEquals(0, snapshot.facultyId(1));
+        assertEquals("", snapshot.name(3));
+        assertTrue(Double.isNaN(StudentSnapshot.EMPTY.averageAge()));
+    }
+
+    @Test
+    void shouldPatchWithoutChangingEarlierSnapshots() {
+        StudentSnapshot original = snapshot(
+                new StudentSnapshotRow(2L, "Ron", 12, 1L),
+                new StudentSnapshotRow(4L, "Hermione", 12, 1L),
+                new StudentSnapshotRow(6L, "Luna", 11, 2L));
+
+        StudentSnapshot inserted = original.with(new StudentSnapshotRow(3L, "Draco", 13, 3L));
+        StudentSnapshot renamed = inserted.with(new StudentSnapshotRow(4L, "Hermione Granger", 17, 1L));
+        StudentSnapshot removed = renamed.without(2L);
+
+        assertEquals(List.of("2 Ron 12", "4 Hermione 12", "6 Luna 11"), rows(original));
+        assertEquals(List.of("2 Ron 12", "3 Draco 13", "4 Hermione 12", "6 Luna 11"), rows(inserted));
+        assertEquals(List.of("2 Ron 12", "3 Draco 13", "4 Hermione Granger 17", "6 Luna 11"), rows(renamed));
+        assertEquals(List.of("3 Draco 13", "4 Hermione Granger 17", "6 Luna 11"), rows(removed));
+        assertSame(removed, removed.without(2L));
+    }
+
+    @Test
+    void shouldMergeABatchOfChangesInOnePass() {
+        StudentSnapshot original = snapshot(
+                new StudentSnapshotRow(2L, "Ron", 12, 1L),
+                new StudentSnapshotRow(4L, "Hermione", 12, 1L),
+                new StudentSnapshotRow(6L, "Luna", 11, 2L),
+                new StudentSnapshotRow(8L, "Neville", 12, 1L));
+
+        // 5 was deleted before it was read, and 2 is gone, so neither comes back as a row
+        StudentSnapshot merged = original.withChanges(
+                List.of(new StudentSnapshotRow(9L, "Ginny", 11, 1L),
+                        new StudentSnapshotRow(1L, "Draco", 13, 3L),
+                        new StudentSnapshotRow(6L, "Luna Lovegood", 14, 2L)),
+                List.of(9L, 2L, 1L, 6L, 5L));
+
+        assertEquals(List.of("2 Ron 12", "4 Hermione 12", "6 Luna 11", "8 Neville 12"), rows(original));
+        assertEquals(List.of("1 Draco 13", "4 Hermione 12", "6 Luna Lovegood 14", "8 Neville 12", "9 Ginny 11"),
+                rows(merged));
+        assertEquals(3, merged.facultyId(0));
+        assertEquals(12.4, merged.averageAge(), 1e-9);
+
+        StudentSnapshot appended = merged.withChanges(
+                List.of(new StudentSnapshotRow(11L, "Cho", 14, 4L), new StudentSnapshotRow(10L, "Cedric", 15, 4L)),
+                List.of(11L, 10L));
+
+        assertEquals(List.of("9 Ginny 11", "10 Cedric 15", "11 Cho 14"), rows(appended).subList(4, 7));
+        assertEquals(5, merged.size());
+    }
+
+    @Test
+    void shouldNotLetTwoSnapshotsAppendIntoTheSameSlot() {
+        StudentSnapshot base = StudentSnapshot.EMPTY;
+        for (long id = 1; id <= 20; id++) {
+            base = base.with(new StudentSnapshotRow(id, "Student " + id, 11, 1L));
+        }
+        // both share the spare capacity left by the appends above
+        StudentSnapshot first = base.with(new StudentSnapshotRow(21L, "First", 12, 1L));
+        StudentSnapshot second = base.with(new StudentSnapshotRow(22L, "Second", 13, 2L));
+
+        assertEquals("21 First 12", rows(first).get(20));
+        assertEquals("22 Second 13", rows(second).get(20));
+        assertEquals(20, base.size());
+        assertEquals(11.0, base.averageAge());
+    }
+
+    @Test
+    void shouldMatchStreamsOverLargeSnapshots() {
+        StudentSnapshot.Builder builder = new StudentSnapshot.Builder();
+        List<Integer> ages = new ArrayList<>();
+        IntStream.range(0, 100_000).forEach(i -> {
+            int age = 11 + i % 8;
+            ages.add(age);
+            builder.add(new StudentSnapshotRow((long) i + 1, (i % 3 == 0 ? "Ann " : "Bob ") + i, age, 1L));
+        });
+        StudentSnapshot snapshot = builder.build();
+
+        assertEquals(ages.stream().mapToInt(Integer::intValue).average().orElseThrow(), snapshot.averageAge(), 1e-9);
+        assertEquals(33_334, snapshot.upperCaseNamesStartingWith('A').size());
+        assertThrows(IllegalArgumentException.class, () -> builder.add(new StudentSnapshotRow(5L, "Late", 11, 1L)));
+    }
+
+    private static StudentSnapshot snapshot(StudentSnapshotRow... rows) {
+        StudentSnapshot.Builder builder = new StudentSnapshot.Builder();
+        for (StudentSnapshotRow row : rows) {
+            builder.add(row);
+        }
+        return builder.build();
+    }
+
+    private static List<String> rows(StudentSnapshot snapshot) {
+        return IntStream.range(0, snapshot.size())
+                .mapToObj(i -> snapshot.id(i) + " " + snapshot.name(i) + " " + snapshot.age(i))
+                .toList();
+    }
+}
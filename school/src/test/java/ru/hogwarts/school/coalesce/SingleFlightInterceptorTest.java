@@ -0,0 +1,174 @@
+package ru.hogwarts.school.coalesce;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.hogwarts.school.cache.AnalyticsSnapshot;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.FacultyService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SingleFlightInterceptorTest {
+
+    @Test
+    void shouldShareOneExecutionBetweenConcurrentIdenticalCalls() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlightInterceptor interceptor = interceptor(registry);
+        SlowReads target = new SlowReads();
+        SlowReads reads = proxy(target, interceptor);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(executor.submit(() -> reads.count("students")));
+            assertTrue(target.started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> reads.count("students")));
+            }
+            awaitCalls(registry, 8);
+            target.release.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(42, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, target.executions.get());
+        assertEquals(7.0 / 8, interceptor.getCoalescedRatio(), 1e-9);
+        assertEquals(7.0, registry.get("school.singleflight.coalesced").functionCounter().count());
+        assertEquals(0, interceptor.getInFlight());
+    }
+
+    @Test
+    void shouldPropagateFailureToJoinedCallers() throws Exception {
+        SingleFlightInterceptor interceptor = interceptor(new SimpleMeterRegistry());
+        SlowReads target = new SlowReads();
+        SlowReads reads = proxy(target, interceptor);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> reads.count("missing"));
+            assertTrue(target.started.await(5, TimeUnit.SECONDS));
+            Future<Integer> joined = executor.submit(() -> reads.count("missing"));
+            while (interceptor.getCoalescedRatio() == 0.0) {
+                Thread.onSpinWait();
+            }
+            target.release.countDown();
+
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> joined.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+            assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, target.executions.get());
+    }
+
+    @Test
+    void shouldExecuteAgainOnceFlightHasLanded() {
+        SingleFlightInterceptor interceptor = interceptor(new SimpleMeterRegistry());
+        SlowReads target = new SlowReads();
+        target.release.countDown();
+        SlowReads reads = proxy(target, interceptor);
+
+        reads.count("students");
+        reads.count("students");
+        reads.count("faculties");
+
+        assertEquals(3, target.executions.get());
+        assertEquals(0.0, interceptor.getCoalescedRatio());
+    }
+
+    @Test
+    void shouldCoalesceLongestFacultyNameLookups() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FacultyRepository facultyRepository = mock(FacultyRepository.class);
+        when(facultyRepository.findAll()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(new Faculty(1L, "Hufflepuff", "yellow"));
+        });
+        FacultyService faculties = proxy(new FacultyService(facultyRepository, mock(StudentRepository.class),
+                event -> { }, mock(AnalyticsSnapshot.class)), interceptor(registry));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(faculties::getLongestFacultyName));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(faculties::getLongestFacultyName));
+            }
+            awaitCalls(registry, 4);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("Hufflepuff", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(facultyRepository, times(1)).findAll();
+    }
+
+    private static void awaitCalls(SimpleMeterRegistry registry, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("school.singleflight.calls").functionCounter().count() < expected) {
+            assertTrue(System.nanoTime() < deadline, "callers did not arrive in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static SingleFlightInterceptor interceptor(MeterRegistry registry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        return new SingleFlightInterceptor(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, SingleFlightInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(SingleFlight.class), interceptor));
+        return (T) factory.getProxy();
+    }
+
+    static class SlowReads {
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @SingleFlight
+        public Integer count(String what) {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if ("missing".equals(what)) {
+                throw new IllegalStateException("no " + what);
+            }
+            return 42;
+        }
+    }
+}
@@ -1,25 +1,36 @@
 package ru.hogwarts.school.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.cache.AvatarCache;
+import ru.hogwarts.school.dto.AvatarContent;
+import ru.hogwarts.school.event.EntityChangedEvent;
+import ru.hogwarts.school.exception.AvatarNotFoundException;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.service.AvatarService;
 
 import java.util.Arrays;
 import java.util.Collections;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AvatarController.class)
+@Import(AvatarCache.class)
 class AvatarControllerWebMvcTest {
 
     @Autowired
@@ -31,6 +42,14 @@ class AvatarControllerWebMvcTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AvatarCache avatarCache;
+
+    @BeforeEach
+    void setUp() {
+        avatarCache.invalidateAll();
+    }
+
     @Test
     void getAllAvatars_shouldReturnPaginatedAvatars() throws Exception {
         Avatar avatar1 = new Avatar();
@@ -86,4 +105,75 @@ class AvatarControllerWebMvcTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content.length()").value(0));
     }
+
+    @Test
+    void getAvatarData_shouldReturnBytesThatCachesRevalidate() throws Exception {
+        byte[] data = {1, 2, 3};
+        when(avatarService.getAvatarVersion(1L)).thenReturn(0L);
+        when(avatarService.getAvatarContent(1L)).thenReturn(new AvatarContent(1L, 5L, "image/png", 0L, data));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/avatar/{id}/data", 1L))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(content().bytes(data))
+                .andExpect(header().string("ETag", "\"avatar-1-0\""))
+                .andExpect(header().string("Cache-Control", "no-cache, public"));
+    }
+
+    @Test
+    void getAvatarData_shouldReturnNotModifiedWithoutLoadingBytes() throws Exception {
+        when(avatarService.getAvatarVersion(1L)).thenReturn(0L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/avatar/{id}/data", 1L)
+                        .header("If-None-Match", "\"avatar-1-0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", "no-cache, public"));
+
+        verify(avatarService, never()).getAvatarContent(1L);
+    }
+
+    @Test
+    void getAvatarData_shouldServeRepeatedRequestsFromCache() throws Exception {
+        byte[] data = {4, 5, 6, 7};
+        when(avatarService.getAvatarVersion(2L)).thenReturn(3L);
+        when(avatarService.getAvatarContent(2L)).thenReturn(new AvatarContent(2L, 5L, "image/jpeg", 3L, data));
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.get("/avatar/{id}/data", 2L))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(data))
+                    .andExpect(header().string("ETag", "\"avatar-2-3\""));
+        }
+        mockMvc.perform(MockMvcRequestBuilders.get("/avatar/{id}/data", 2L)
+                        .header("If-None-Match", "\"avatar-2-3\""))
+                .andExpect(status().isNotModified());
+
+        verify(avatarService, times(1)).getAvatarVersion(2L);
+        verify(avatarService, times(1)).getAvatarContent(2L);
+    }
+
+    @Test
+    void getAvatarData_shouldReloadAfterStudentIsDeleted() throws Exception {
+        byte[] data = {8, 9};
+        when(avatarService.getAvatarVersion(3L)).thenReturn(0L);
+        when(avatarService.getAvatarContent(3L)).thenReturn(new AvatarContent(3L, 7L, "image/png", 0L, data));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/avatar/{id}/data", 3L))
+                .andExpect(status().isOk());
+        avatarCache.onEntityChanged(new EntityChangedEvent(
+                EntityChangedEvent.Entity.STUDENT, EntityChangedEvent.Change.DELETED, 7L));
+        mockMvc.perform(MockMvcRequestBuilders.get("/avatar/{id}/data", 3L))
+                .andExpect(status().isOk());
+
+        verify(avatarService, times(2)).getAvatarContent(3L);
+    }
+
+    @Test
+    void getAvatarData_shouldReturnNotFoundForUnknownAvatar() throws Exception {
+        when(avatarService.getAvatarVersion(9999L))
+                .thenThrow(new AvatarNotFoundException("Avatar not found with id: 9999"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/avatar/{id}/data", 9999L))
+                .andExpect(status().isNotFound());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.event.ChangeFeed;
+import ru.hogwarts.school.event.EntityChangedEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(EventController.class)
+@Import(ChangeFeed.class)
+class EventControllerWebMvcTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Test
+    void getEvents_shouldPushChangesAfterSubscribing() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        changeFeed.onEntityChanged(new EntityChangedEvent(
+                EntityChangedEvent.Entity.STUDENT, EntityChangedEvent.Change.CREATED, 101L));
+
+        String content = awaitContent(result, "\"id\":101");
+        assertThat(content).contains("id:" + changeFeed.getEpoch() + "-", "\"entity\":\"STUDENT\"",
+                "\"change\":\"CREATED\"");
+    }
+
+    @Test
+    void getEvents_withLastEventId_shouldReplayMissedChanges() throws Exception {
+        changeFeed.onEntityChanged(new EntityChangedEvent(
+                EntityChangedEvent.Entity.FACULTY, EntityChangedEvent.Change.UPDATED, 202L));
+        changeFeed.onEntityChanged(new EntityChangedEvent(
+                EntityChangedEvent.Entity.FACULTY, EntityChangedEvent.Change.DELETED, 203L));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/events")
+                        .header("Last-Event-ID", changeFeed.getEpoch() + "-0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String content = awaitContent(result, "\"id\":203");
+        assertThat(content).doesNotContain("event:reset");
+        assertThat(content).contains("\"id\":202", "\"change\":\"DELETED\"");
+        assertThat(content.indexOf("\"id\":202")).isLessThan(content.indexOf("\"id\":203"));
+    }
+
+    @Test
+    void getEvents_withUnknownLastEventId_shouldSendReset() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/events")
+                        .header("Last-Event-ID", "999999"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(awaitContent(result, "event:reset")).contains("data:{\"epoch\":\"" + changeFeed.getEpoch() + "\"");
+    }
+
+    @Test
+    void getEvents_withLastEventIdOfAnotherEpoch_shouldSendReset() throws Exception {
+        changeFeed.onEntityChanged(new EntityChangedEvent(
+                EntityChangedEvent.Entity.STUDENT, EntityChangedEvent.Change.UPDATED, 303L));
+
+        // an id from before a restart: same sequence range, different epoch
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/events")
+                        .header("Last-Event-ID", "other-0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String content = awaitContent(result, "event:reset");
+        assertThat(content).contains("id:" + changeFeed.getEpoch() + "-").doesNotContain("\"id\":303");
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            content = result.getResponse().getContentAsString();
+        }
+        assertThat(content).contains(expected);
+        return content;
+    }
+}
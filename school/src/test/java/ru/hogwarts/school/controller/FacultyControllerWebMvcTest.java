@@ -1,26 +1,58 @@
 package ru.hogwarts.school.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.cache.JsonResponseCache;
+import ru.hogwarts.school.config.CompactEncodingConfig;
+import ru.hogwarts.school.dto.AvatarContent;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.dto.StudentPage;
 import ru.hogwarts.school.exception.FacultyNotFoundException;
+import ru.hogwarts.school.exception.InvalidFieldSelectionException;
+import ru.hogwarts.school.exception.InvalidPageRequestException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.AvatarService;
 import ru.hogwarts.school.service.FacultyService;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(FacultyController.class)
+@Import({JsonResponseCache.class, CompactEncodingConfig.class})
 class FacultyControllerWebMvcTest {
 
     @Autowired
@@ -29,15 +61,30 @@ class FacultyControllerWebMvcTest {
     @MockBean
     private FacultyService facultyService;
 
+    @MockBean
+    private AvatarService avatarService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JsonResponseCache responseCache;
+
     private static final Long FACULTY_ID = 1L;
     private static final String FACULTY_NAME = "Гриффиндор";
     private static final String FACULTY_COLOR = "красный";
     private static final Long STUDENT_ID = 1L;
     private static final String STUDENT_NAME = "Гарри Поттер";
     private static final int STUDENT_AGE = 17;
+    private static final ResourceVersion FACULTY_VERSION =
+            new ResourceVersion(2L, 5L, Instant.parse("2026-10-01T10:15:30Z"));
+
+    @BeforeEach
+    void setUp() {
+        responseCache.clear();
+        when(facultyService.getFacultyVersion(anyLong())).thenReturn(FACULTY_VERSION);
+        when(facultyService.getFacultiesVersion()).thenReturn(FACULTY_VERSION);
+    }
 
     @Test
     void createFaculty_shouldReturnFaculty() throws Exception {
@@ -65,6 +112,36 @@ class FacultyControllerWebMvcTest {
                 .andExpect(jsonPath("$.color").value(FACULTY_COLOR));
     }
 
+    @Test
+    void getFaculty_shouldReturnNotModifiedWithoutLoadingFaculty() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}", FACULTY_ID)
+                        .header("If-None-Match", FACULTY_VERSION.eTag("faculty-" + FACULTY_ID)))
+                .andExpect(status().isNotModified());
+
+        verify(facultyService, never()).getFacultyById(FACULTY_ID);
+    }
+
+    @Test
+    void getFaculty_shouldAnswerIfModifiedSinceWithFullResponse() throws Exception {
+        // removing a student does not move MAX(updated_at), so a date cannot say the faculty is unchanged
+        when(facultyService.getFacultyById(FACULTY_ID)).thenReturn(new Faculty(FACULTY_ID, FACULTY_NAME, FACULTY_COLOR));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}", FACULTY_ID)
+                        .header("If-Modified-Since", "Fri, 01 Jan 2100 00:00:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andExpect(jsonPath("$.id").value(FACULTY_ID));
+    }
+
+    @Test
+    void getFaculty_shouldReturnNotFoundWhenVersionLookupFails() throws Exception {
+        when(facultyService.getFacultyVersion(9999L))
+                .thenThrow(new FacultyNotFoundException("Faculty not found with id: 9999"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}", 9999L))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void getFaculty_shouldReturnNotFoundForInvalidId() throws Exception {
         when(facultyService.getFacultyById(9999L))
@@ -112,6 +189,122 @@ class FacultyControllerWebMvcTest {
                 .andExpect(jsonPath("$[1].name").value("Слизерин"));
     }
 
+    @Test
+    void getAllFaculties_withFields_shouldReturnSparseViews() throws Exception {
+        when(facultyService.getFacultyViews(List.of("name"), List.of("students"))).thenReturn(List.of(
+                Map.of("name", FACULTY_NAME, "students", List.of(Map.of("id", 1L, "name", "Гарри Поттер", "age", 17)))));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty")
+                        .param("fields", "name")
+                        .param("include", "students"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value(FACULTY_NAME))
+                .andExpect(jsonPath("$[0].color").doesNotExist())
+                .andExpect(jsonPath("$[0].students[0].name").value("Гарри Поттер"));
+
+        verify(facultyService, never()).getAllFaculties();
+    }
+
+    @Test
+    void getAllFaculties_withFields_shouldNotShareETagsBetweenSelectionsWithTheSameHashCode() throws Exception {
+        // "Aa" and "BB" have the same String.hashCode, and so do the two selections
+        when(facultyService.getFacultyViews(any(), isNull())).thenReturn(List.of());
+
+        String first = mockMvc.perform(MockMvcRequestBuilders.get("/faculty").param("fields", "Aa"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty").param("fields", "BB").header("If-None-Match", first))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(first)));
+    }
+
+    @Test
+    void getAllFaculties_withUnknownField_shouldReturnBadRequest() throws Exception {
+        when(facultyService.getFacultyViews(eq(List.of("motto")), isNull()))
+                .thenThrow(new InvalidFieldSelectionException("Unknown faculty field 'motto'"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty").param("fields", "motto"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllFaculties_shouldNegotiateSmile() throws Exception {
+        when(facultyService.getAllFaculties()).thenReturn(List.of(new Faculty(FACULTY_ID, FACULTY_NAME, FACULTY_COLOR)));
+
+        byte[] smile = mockMvc.perform(MockMvcRequestBuilders.get("/faculty")
+                        .header("Accept", "application/x-jackson-smile, application/json;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string("ETag", FACULTY_VERSION.eTag("faculties-x-jackson-smile")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode faculties = new SmileMapper().readTree(smile);
+        assertEquals(FACULTY_NAME, faculties.get(0).get("name").asText());
+        assertEquals(FACULTY_COLOR, faculties.get(0).get("color").asText());
+    }
+
+    @Test
+    void getAllFaculties_shouldPreferTheHigherQualityEncoding() throws Exception {
+        when(facultyService.getAllFaculties()).thenReturn(List.of(new Faculty(FACULTY_ID, FACULTY_NAME, FACULTY_COLOR)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty")
+                        .header("Accept", "application/json;q=0.2, application/cbor;q=0.9"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"));
+    }
+
+    @Test
+    void getAllFaculties_shouldReturnNotModifiedForMatchingETag() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty")
+                        .header("If-None-Match", FACULTY_VERSION.eTag("faculties")))
+                .andExpect(status().isNotModified());
+
+        verify(facultyService, never()).getAllFaculties();
+    }
+
+    @Test
+    void getAllFaculties_shouldTakeETagFromTheCachedEntry() throws Exception {
+        when(facultyService.getAllFaculties()).thenReturn(List.of(new Faculty(FACULTY_ID, FACULTY_NAME, FACULTY_COLOR)));
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty"))
+                .andExpect(header().string("ETag", FACULTY_VERSION.eTag("faculties")));
+
+        // committed on another instance, not yet evicted here: the old body keeps its old ETag
+        ResourceVersion newer = new ResourceVersion(3L, 9L, Instant.parse("2026-10-02T10:15:30Z"));
+        when(facultyService.getFacultiesVersion()).thenReturn(newer);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", FACULTY_VERSION.eTag("faculties")));
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty")
+                        .header("If-None-Match", newer.eTag("faculties")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value(FACULTY_NAME));
+        verify(facultyService, times(1)).getAllFaculties();
+    }
+
+    @Test
+    void getAllFaculties_shouldServeGzippedCopyFromCache() throws Exception {
+        List<Faculty> faculties = List.of(new Faculty(FACULTY_ID, FACULTY_NAME, FACULTY_COLOR));
+        when(facultyService.getAllFaculties()).thenReturn(faculties);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value(FACULTY_NAME));
+
+        byte[] gzipped = mockMvc.perform(MockMvcRequestBuilders.get("/faculty")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", FACULTY_VERSION.eTag("faculties-gzip")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        String json = new String(new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(json.contains(FACULTY_NAME));
+        verify(facultyService, times(1)).getAllFaculties();
+    }
+
     @Test
     void getFacultiesByColor_shouldReturnFilteredFaculties() throws Exception {
         List<Faculty> faculties = Arrays.asList(
@@ -146,17 +339,41 @@ class FacultyControllerWebMvcTest {
         List<Student> students = Arrays.asList(
                 new Student(STUDENT_ID, STUDENT_NAME, STUDENT_AGE, faculty)
         );
-        when(facultyService.getStudentsByFacultyId(FACULTY_ID)).thenReturn(students);
+        when(facultyService.getStudentsByFacultyId(FACULTY_ID, null, null, null))
+                .thenReturn(new StudentPage(students, null));
 
         mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}/students", FACULTY_ID))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].name").value(STUDENT_NAME))
-                .andExpect(jsonPath("$[0].age").value(STUDENT_AGE));
+                .andExpect(jsonPath("$[0].age").value(STUDENT_AGE))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void getFacultyStudents_fullPage_shouldLinkToNextPage() throws Exception {
+        when(facultyService.getStudentsByFacultyId(FACULTY_ID, "name", null, 1)).thenReturn(new StudentPage(
+                List.of(new Student(STUDENT_ID, STUDENT_NAME, STUDENT_AGE)), "TkFNRXwxfNCT0LDRgNGA0Lg"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}/students?sort=name&limit=1", FACULTY_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value(STUDENT_NAME))
+                .andExpect(header().string("Link",
+                        "<http://localhost/faculty/1/students?sort=name&limit=1&after=TkFNRXwxfNCT0LDRgNGA0Lg>; rel=\"next\""));
+    }
+
+    @Test
+    void getFacultyStudents_shouldRejectUnknownSort() throws Exception {
+        when(facultyService.getStudentsByFacultyId(FACULTY_ID, "house", null, null))
+                .thenThrow(new InvalidPageRequestException("Unknown sort 'house', expected id, name or age"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}/students", FACULTY_ID).param("sort", "house"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Unknown sort 'house', expected id, name or age"));
     }
 
     @Test
     void getFacultyStudents_shouldReturnNotFoundForInvalidFaculty() throws Exception {
-        when(facultyService.getStudentsByFacultyId(9999L))
+        when(facultyService.getStudentsByFacultyId(9999L, null, null, null))
                 .thenThrow(new FacultyNotFoundException("Faculty not found with id: 9999"));
 
         mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}/students", 9999L))
@@ -172,4 +389,49 @@ class FacultyControllerWebMvcTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFacultyAvatarsZip_shouldStreamStoredEntries() throws Exception {
+        byte[] first = {1, 2, 3};
+        byte[] second = {4, 5};
+        doAnswer(invocation -> {
+            Consumer<AvatarContent> action = invocation.getArgument(1);
+            action.accept(new AvatarContent(10L, 1L, "image/jpeg", 0L, first));
+            action.accept(new AvatarContent(11L, 2L, "image/png", 0L, second));
+            return null;
+        }).when(avatarService).forEachFacultyAvatar(eq(FACULTY_ID), any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}/avatars.zip", FACULTY_ID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] zip = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"faculty-1-avatars.zip\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry = in.getNextEntry();
+            assertEquals("student-1-avatar-10.jpg", entry.getName());
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertArrayEquals(first, in.readAllBytes());
+            entry = in.getNextEntry();
+            assertEquals("student-2-avatar-11.png", entry.getName());
+            assertArrayEquals(second, in.readAllBytes());
+            assertNull(in.getNextEntry());
+        }
+        verify(facultyService).checkFacultyExists(FACULTY_ID);
+        verify(facultyService, never()).getFacultyById(anyLong());
+    }
+
+    @Test
+    void getFacultyAvatarsZip_shouldReturnNotFoundForUnknownFaculty() throws Exception {
+        doThrow(new FacultyNotFoundException("Faculty not found with id: 9999"))
+                .when(facultyService).checkFacultyExists(9999L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/faculty/{id}/avatars.zip", 9999L))
+                .andExpect(status().isNotFound());
+
+        verify(avatarService, never()).forEachFacultyAvatar(anyLong(), any());
+    }
+}
@@ -0,0 +1,129 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.compute.ComputeExecutor;
+import ru.hogwarts.school.config.ComputeConfig;
+import ru.hogwarts.school.exception.ComputeUnavailableException;
+import ru.hogwarts.school.service.MathService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = MathController.class, properties = {
+        "school.compute.parallelism=1",
+        "school.compute.queue-capacity=1",
+        "school.compute.timeout=300ms"
+})
+@Import(ComputeConfig.class)
+class MathControllerWebMvcTest {
+
+    private static final long SUM = 500_000_500_000L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MathService mathService;
+
+    @Autowired
+    private ComputeExecutor computeExecutor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void releaseWorkers() throws Exception {
+        release.countDown();
+        // the pool outlives the test; wait until blocked tasks have given their slots back
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                computeExecutor.submit("drain", () -> null).get(5, TimeUnit.SECONDS);
+                return;
+            } catch (ComputeUnavailableException e) {
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    @Test
+    void getSumSlow_shouldComputeOnComputePool() throws Exception {
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(mathService.calculateSumSlow()).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return SUM;
+        });
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/math/sum-slow"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(String.valueOf(SUM)));
+
+        assertTrue(thread.get().startsWith("compute-"), thread.get());
+    }
+
+    @Test
+    void getSumFormula_shouldNotUseComputePool() throws Exception {
+        when(mathService.calculateSumFormula()).thenReturn(SUM);
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/math/sum-formula"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(String.valueOf(SUM)));
+        verify(mathService).calculateSumFormula();
+        verifyNoMoreInteractions(mathService);
+    }
+
+    @Test
+    void getSumParallel_shouldAnswer503WhenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(mathService.calculateSumParallel()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return SUM;
+        });
+
+        // one request runs, one waits in the queue
+        mockMvc.perform(MockMvcRequestBuilders.get("/math/sum-parallel")).andExpect(request().asyncStarted());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        mockMvc.perform(MockMvcRequestBuilders.get("/math/sum-parallel")).andExpect(request().asyncStarted());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/math/sum-parallel"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string(containsString("busy")));
+    }
+
+    @Test
+    void getSumRange_shouldAnswer503WhenComputationTimesOut() throws Exception {
+        when(mathService.calculateSumRange()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return SUM;
+        });
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/math/sum-range"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5_000);
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string(containsString("did not finish within 300 ms")));
+    }
+}
@@ -1,26 +1,45 @@
 package ru.hogwarts.school.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.config.CompactEncodingConfig;
+import ru.hogwarts.school.dto.AgeDistribution;
+import ru.hogwarts.school.dto.AgeDistributionReport;
+import ru.hogwarts.school.dto.ResourceVersion;
+import ru.hogwarts.school.dto.StudentRosterEntry;
 import ru.hogwarts.school.exception.StudentNotFoundException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.service.StudentService;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(StudentController.class)
+@Import(CompactEncodingConfig.class)
 class StudentControllerWebMvcTest {
 
     @Autowired
@@ -38,6 +57,13 @@ class StudentControllerWebMvcTest {
     private static final Long FACULTY_ID = 1L;
     private static final String FACULTY_NAME = "Гриффиндор";
     private static final String FACULTY_COLOR = "красный";
+    private static final ResourceVersion STUDENT_VERSION =
+            new ResourceVersion(1L, 3L, Instant.parse("2026-10-01T10:15:30Z"));
+
+    @BeforeEach
+    void setUp() {
+        when(studentService.getStudentVersion(anyLong())).thenReturn(STUDENT_VERSION);
+    }
 
     @Test
     void createStudent_shouldReturnStudent() throws Exception {
@@ -67,6 +93,50 @@ class StudentControllerWebMvcTest {
                 .andExpect(jsonPath("$.age").value(STUDENT_AGE));
     }
 
+    @Test
+    void getStudent_shouldReportQueryStatisticsHeaders() throws Exception {
+        Student student = new Student(STUDENT_ID, STUDENT_NAME, STUDENT_AGE, null);
+        when(studentService.getStudentById(STUDENT_ID)).thenReturn(student);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/student/{id}", STUDENT_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Query-Count"))
+                .andExpect(header().exists("X-Query-Rows"))
+                .andExpect(header().exists("X-Query-Time-Ms"));
+    }
+
+    @Test
+    void getStudent_shouldReturnETagWithoutLastModified() throws Exception {
+        Student student = new Student(STUDENT_ID, STUDENT_NAME, STUDENT_AGE, null);
+        when(studentService.getStudentById(STUDENT_ID)).thenReturn(student);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/student/{id}", STUDENT_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", STUDENT_VERSION.eTag("student-" + STUDENT_ID)))
+                .andExpect(header().doesNotExist("Last-Modified"));
+    }
+
+    @Test
+    void getStudent_shouldIgnoreIfModifiedSince() throws Exception {
+        Student student = new Student(STUDENT_ID, STUDENT_NAME, STUDENT_AGE, null);
+        when(studentService.getStudentById(STUDENT_ID)).thenReturn(student);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/student/{id}", STUDENT_ID)
+                        .header("If-Modified-Since", "Fri, 01 Jan 2100 00:00:00 GMT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(STUDENT_ID));
+    }
+
+    @Test
+    void getStudent_shouldReturnNotModifiedWithoutLoadingStudent() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/student/{id}", STUDENT_ID)
+                        .header("If-None-Match", STUDENT_VERSION.eTag("student-" + STUDENT_ID)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(studentService, never()).getStudentById(STUDENT_ID);
+    }
+
     @Test
     void getStudent_shouldReturnNotFoundForInvalidId() throws Exception {
         // ИСПРАВЛЕНО: бросаем правильное исключение
@@ -176,6 +246,22 @@ class StudentControllerWebMvcTest {
                 .andExpect(content().string("17.5"));
     }
 
+    @Test
+    void getAgeDistribution_shouldReturnOverallAndPerFacultyStatistics() throws Exception {
+        AgeDistribution faculty = new AgeDistribution(FACULTY_ID, 3, 11, 13, 12.0, 12, 13, Map.of(11, 1, 12, 1, 13, 1));
+        when(studentService.getAgeDistribution(null)).thenReturn(new AgeDistributionReport(
+                new AgeDistribution(null, 4, 11, 17, 13.25, 12, 17, Map.of(11, 1, 12, 1, 13, 1, 17, 1)),
+                List.of(faculty)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/student/age-distribution"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.overall.students").value(4))
+                .andExpect(jsonPath("$.overall.p90Age").value(17))
+                .andExpect(jsonPath("$.faculties[0].facultyId").value(FACULTY_ID))
+                .andExpect(jsonPath("$.faculties[0].medianAge").value(12))
+                .andExpect(jsonPath("$.faculties[0].histogram.13").value(1));
+    }
+
     @Test
     void getLastFiveStudents_shouldReturnFiveStudents() throws Exception {
         Faculty faculty = new Faculty(FACULTY_ID, FACULTY_NAME, FACULTY_COLOR);
@@ -193,4 +279,72 @@ class StudentControllerWebMvcTest {
                 .andExpect(jsonPath("$.length()").value(5))
                 .andExpect(jsonPath("$[0].name").value("Студент 1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStudentsWithAvatar_fullPage_shouldLinkToNextPage() throws Exception {
+        List<StudentRosterEntry> page = List.of(
+                new StudentRosterEntry(3L, STUDENT_NAME, STUDENT_AGE, FACULTY_ID, FACULTY_NAME, 10L, "image/png", 1024L),
+                new StudentRosterEntry(7L, "Гермиона Грейнджер", 17, FACULTY_ID, FACULTY_NAME, 11L, "image/jpeg", 2048L));
+        when(studentService.getStudentsWithAvatar(1L, 2)).thenReturn(page);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/student/with-avatar")
+                        .param("after", "1")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].facultyName").value(FACULTY_NAME))
+                .andExpect(jsonPath("$[1].avatarMediaType").value("image/jpeg"))
+                .andExpect(header().string("Link",
+                        "<http://localhost/student/with-avatar?after=7&limit=2>; rel=\"next\""));
+    }
+
+    @Test
+    void getRoster_lastPage_shouldNotLinkFurther() throws Exception {
+        when(studentService.getRoster(isNull(), isNull())).thenReturn(List.of(
+                new StudentRosterEntry(STUDENT_ID, STUDENT_NAME, STUDENT_AGE, null, null, null, null, null)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/student/roster"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value(STUDENT_NAME))
+                .andExpect(jsonPath("$[0].avatarId").doesNotExist())
+                .andExpect(header().doesNotExist("Link"));
+    }
+
+    @Test
+    void getAllStudents_withFields_shouldReturnOnlyRequestedFields() throws Exception {
+        when(studentService.getStudentViews(List.of("name"))).thenReturn(List.of(Map.of("name", STUDENT_NAME)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/student").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value(STUDENT_NAME))
+                .andExpect(jsonPath("$[0].age").doesNotExist());
+
+        verify(studentService, never()).getAllStudents();
+    }
+
+    @Test
+    void streamRoster_shouldWriteCborArray() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<StudentRosterEntry> action = invocation.getArgument(0);
+            action.accept(new StudentRosterEntry(STUDENT_ID, STUDENT_NAME, STUDENT_AGE, FACULTY_ID, FACULTY_NAME,
+                    10L, "image/png", 1024L));
+            action.accept(new StudentRosterEntry(2L, "Полумна Лавгуд", 15, null, null, null, null, null));
+            return null;
+        }).when(studentService).forEachRosterEntry(any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/student/stream")
+                        .header("Accept", "application/cbor"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] cbor = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode roster = new CBORMapper().readTree(cbor);
+        assertEquals(2, roster.size());
+        assertEquals(FACULTY_NAME, roster.get(0).get("facultyName").asText());
+        assertEquals(1024L, roster.get(0).get("avatarFileSize").asLong());
+        assertTrue(roster.get(1).get("avatarId").isNull());
+    }
+}
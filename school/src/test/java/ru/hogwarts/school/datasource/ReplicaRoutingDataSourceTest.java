@@ -0,0 +1,97 @@
+package ru.hogwarts.school.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final Map<String, Long> lags = new ConcurrentHashMap<>();
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        lags.put("replica-0", 0L);
+        lags.put("replica-1", 0L);
+        // pools are never connected: the lag probe answers from the map
+        routing = new ReplicaRoutingDataSource(pool("primary"), List.of(pool("replica-0"), pool("replica-1")),
+                Duration.ofSeconds(5), Duration.ofHours(1), pool -> {
+                    Long lag = lags.get(pool.getPoolName());
+                    if (lag == null) {
+                        throw new IllegalStateException("connection refused");
+                    }
+                    return lag;
+                });
+        routing.checkReplicas();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        routing.close();
+    }
+
+    @Test
+    void shouldSendReadWriteTransactionsToThePrimary() {
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void shouldSpreadReadOnlyTransactionsOverHealthyReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Set<Object> keys = IntStream.range(0, 4)
+                .mapToObj(i -> routing.determineCurrentLookupKey())
+                .collect(Collectors.toSet());
+
+        assertEquals(Set.of("replica-0", "replica-1"), keys);
+    }
+
+    @Test
+    void shouldSkipReplicasThatLagOrFail() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        lags.put("replica-0", 6_000L);
+        routing.checkReplicas();
+
+        assertEquals("replica-1", routing.determineCurrentLookupKey());
+        assertEquals("replica-1", routing.determineCurrentLookupKey());
+
+        lags.remove("replica-1");
+        routing.checkReplicas();
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+        assertFalse(routing.getReplicas().get(1).isHealthy());
+
+        lags.put("replica-0", 100L);
+        routing.checkReplicas();
+
+        assertEquals("replica-0", routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void shouldSendPrimaryReadsToThePrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, PrimaryReads.call(routing::determineCurrentLookupKey));
+        assertFalse(PrimaryReads.isActive());
+        assertNotEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        return pool;
+    }
+}
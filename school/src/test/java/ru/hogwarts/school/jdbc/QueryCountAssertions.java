@@ -0,0 +1,60 @@
+package ru.hogwarts.school.jdbc;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+import ru.hogwarts.school.web.QueryCountFilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    public static ResultMatcher statementCount(int expected) {
+        return result -> assertEquals(expected, header(result.getResponse().getHeader(QueryCountFilter.STATEMENTS_HEADER)),
+                "SQL statements executed by " + result.getRequest().getRequestURI());
+    }
+
+    public static ResultMatcher statementCountAtMost(int max) {
+        return result -> {
+            long actual = header(result.getResponse().getHeader(QueryCountFilter.STATEMENTS_HEADER));
+            assertTrue(actual <= max, result.getRequest().getRequestURI()
+                    + " executed " + actual + " SQL statements, budget is " + max);
+        };
+    }
+
+    public static ResultMatcher rowsFetched(long expected) {
+        return result -> assertEquals(expected, header(result.getResponse().getHeader(QueryCountFilter.ROWS_HEADER)),
+                "Rows fetched by " + result.getRequest().getRequestURI());
+    }
+
+    public static ResultMatcher rowsFetchedAtMost(long max) {
+        return result -> {
+            long actual = header(result.getResponse().getHeader(QueryCountFilter.ROWS_HEADER));
+            assertTrue(actual <= max, result.getRequest().getRequestURI()
+                    + " fetched " + actual + " rows, budget is " + max);
+        };
+    }
+
+    public static QueryStats track(Runnable action) {
+        QueryStats stats = QueryStatsHolder.start();
+        try {
+            action.run();
+            return stats;
+        } finally {
+            QueryStatsHolder.clear();
+        }
+    }
+
+    public static void assertStatementCount(int expected, Runnable action) {
+        QueryStats stats = track(action);
+        assertEquals(expected, stats.getStatements(), "SQL statements executed: " + stats);
+    }
+
+    private static long header(String value) {
+        assertNotNull(value, "Response has no query statistics header");
+        return Long.parseLong(value);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.hogwarts.school.jdbc;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.hogwarts.school.config.QueryCountConfig;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static ru.hogwarts.school.jdbc.QueryCountAssertions.assertStatementCount;
+import static ru.hogwarts.school.jdbc.QueryCountAssertions.track;
+
+@DataJpaTest
+@Import(QueryCountConfig.class)
+@ActiveProfiles("test")
+class QueryCountingListenerTest {
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long studentId;
+
+    @BeforeEach
+    void setUp() {
+        Faculty faculty = facultyRepository.save(new Faculty(null, "Gryffindor", "red"));
+        for (int i = 0; i < 3; i++) {
+            Student student = studentRepository.save(new Student(null, "Student " + i, 11 + i, faculty));
+            studentId = student.getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldCountStatementsAndRowsOfRepositoryCalls() {
+        QueryStats stats = track(() -> studentRepository.findByAgeBetween(11, 13));
+
+        // the three students, then their eagerly fetched faculty joined with its three students
+        assertEquals(2, stats.getStatements(), stats::toString);
+        assertEquals(6, stats.getRowsFetched(), stats::toString);
+    }
+
+    @Test
+    void shouldCountEveryExecutionOfTheSameStatement() {
+        QueryStats stats = track(() -> {
+            studentRepository.getTotalNumberOfStudents();
+            studentRepository.getTotalNumberOfStudents();
+            studentRepository.getTotalNumberOfStudents();
+        });
+
+        assertEquals(3, stats.getStatements(), stats::toString);
+        assertEquals(3, stats.getRowsFetched(), stats::toString);
+        assertEquals(1, stats.getRepeatedStatements(3).size(), stats::toString);
+    }
+
+    @Test
+    void shouldNotCountWhatThePersistenceContextAnswers() {
+        assertStatementCount(2, () -> studentRepository.findById(studentId));
+        assertStatementCount(0, () -> studentRepository.findById(studentId));
+    }
+
+    @Test
+    void shouldIgnoreStatementsOutsideATrackedScope() {
+        studentRepository.getTotalNumberOfStudents();
+
+        assertNull(QueryStatsHolder.current());
+        assertStatementCount(1, () -> studentRepository.getTotalNumberOfStudents());
+    }
+}
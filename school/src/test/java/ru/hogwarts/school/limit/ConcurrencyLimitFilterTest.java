@@ -0,0 +1,92 @@
+package ru.hogwarts.school.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    @Test
+    void shouldRejectRequestsAboveLimitOfGroup() throws Exception {
+        ConcurrencyLimitFilter filter = filterWithLimit(1, "GET /student");
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/student"), outer,
+                whileInFlight(filter, "/student", nested));
+
+        assertEquals(200, outer.getStatus());
+        assertEquals(503, nested.getStatus());
+        assertEquals("1", nested.getHeader("Retry-After"));
+    }
+
+    @Test
+    void shouldNotLimitEndpointsOutsideGroups() throws Exception {
+        ConcurrencyLimitFilter filter = filterWithLimit(1, "GET /student");
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/student"), new MockHttpServletResponse(),
+                whileInFlight(filter, "/student/1", nested));
+
+        assertEquals(200, nested.getStatus());
+    }
+
+    @Test
+    void fixedGroupShouldKeepItsLimitAfterFailures() throws Exception {
+        ConcurrencyLimitProperties.Group group = new ConcurrencyLimitProperties.Group();
+        group.setEndpoints(List.of("GET /student/stream"));
+        group.setAdaptive(false);
+        group.setInitialLimit(1);
+        group.setMaxLimit(2);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(Map.of("streaming", group), new SimpleMeterRegistry());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/student/stream"), new MockHttpServletResponse(),
+                (request, response) -> ((MockHttpServletResponse) response).setStatus(503));
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/student/stream"), new MockHttpServletResponse(),
+                whileInFlight(filter, "/student/stream", nested));
+
+        assertEquals(200, nested.getStatus());
+    }
+
+    @Test
+    void limiterShouldGrowWhileFastAndBackOffWhenSlow() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 4, Duration.ofMillis(100).toNanos(), 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.onSuccess(Duration.ofMillis(10).toNanos());
+        assertEquals(3, limiter.getLimit());
+
+        limiter.onSuccess(Duration.ofMillis(300).toNanos());
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+
+        limiter.onDropped();
+        assertEquals(1, limiter.getLimit());
+    }
+
+    private static FilterChain whileInFlight(ConcurrencyLimitFilter filter, String uri, MockHttpServletResponse response) {
+        return (request, ignored) ->
+                filter.doFilter(new MockHttpServletRequest("GET", uri), response, new MockFilterChain());
+    }
+
+    private static ConcurrencyLimitFilter filterWithLimit(int limit, String endpoint) {
+        ConcurrencyLimitProperties.Group group = new ConcurrencyLimitProperties.Group();
+        group.setEndpoints(List.of(endpoint));
+        group.setInitialLimit(limit);
+        group.setMaxLimit(limit);
+        return new ConcurrencyLimitFilter(Map.of("test", group), new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,179 @@
+package ru.hogwarts.school.performance;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.event.ResyncRequiredEvent;
+import ru.hogwarts.school.web.QueryCountFilter;
+
+import java.lang.management.ManagementFactory;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.hogwarts.school.jdbc.QueryCountAssertions.rowsFetched;
+import static ru.hogwarts.school.jdbc.QueryCountAssertions.statementCount;
+
+/**
+ * Per-endpoint budgets for SQL statements, rows fetched and bytes allocated by one request
+ * against a fixed dataset. Every measured request starts with empty application caches, so
+ * the figures are the cold-path cost.
+ * <p>
+ * Statements and rows are deterministic for the dataset and must match the table exactly,
+ * so a cheaper endpoint fails too, until the table records the improvement. Allocation
+ * is an upper bound, taken as the lowest of several runs after a warm-up to filter out JIT
+ * and lazy-init noise; it needs over a hundred requests per endpoint and is only checked
+ * with {@code -Dschool.budget.allocation=true}.
+ * <p>
+ * If a change in cost is intended, re-run with {@code -Dschool.budget.report=true} and
+ * update the table with the printed figures.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:budget;DB_CLOSE_DELAY=-1",
+        "logging.level.ru.hogwarts.school=WARN",
+        "school.single-flight.enabled=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EndpointBudgetTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EndpointBudgetTest.class);
+
+    static final int FACULTIES = 4;
+    static final int STUDENTS_PER_FACULTY = 25;
+    static final int AVATARS = 10;
+    static final int AVATAR_SIZE = 4096;
+
+    private static final int WARMUP_RUNS = 100;
+    private static final int MEASURED_RUNS = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    static Stream<Budget> budgets() {
+        return Stream.of(
+                //          endpoint                                          statements rows  allocated bytes
+                new Budget("/faculty",                                            7,  106,   780_000),
+                new Budget("/faculty/1",                                          3,   27,   380_000),
+                new Budget("/faculty/1/students",                                 1,   25,   230_000),
+                new Budget("/faculty/1/students?sort=name&limit=10",              1,   10,   230_000),
+                new Budget("/faculty/1/students?sort=age&limit=10",               1,   10,   230_000),
+                new Budget("/faculty?fields=name&include=students",               4,  106,   610_000),
+                new Budget("/faculty/longest-name",                               1,    4,   130_000),
+                new Budget("/student",                                            5,  200,   740_000),
+                new Budget("/student?fields=id,name",                             1,  100,   300_000),
+                new Budget("/student/1",                                          3,   27,   310_000),
+                new Budget("/student/count",                                      1,    1,   120_000),
+                new Budget("/student/average-age",                                1,    1,   130_000),
+                new Budget("/student/average-age-stream",                         1,  100,   330_000),
+                new Budget("/student/names-starting-with-a",                      1,  100,   330_000),
+                new Budget("/student/age-distribution",                           1,   28,   240_000),
+                new Budget("/student/last-five",                                  2,   30,   260_000),
+                new Budget("/student/age-between?min=12&max=13",                  5,  130,   680_000),
+                new Budget("/student/roster?limit=20",                            1,   20,   290_000),
+                new Budget("/student/with-avatar?limit=20",                       1,   10,   240_000),
+                new Budget("/avatar?page=0&size=5",                               8,   36,   390_000),
+                new Budget("/avatar/1/data",                                      2,    2,   260_000)
+        );
+    }
+
+    @BeforeAll
+    void seed() {
+        OffsetDateTime now = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        String[] colors = {"red", "green", "blue", "yellow"};
+        for (int f = 1; f <= FACULTIES; f++) {
+            jdbcTemplate.update("INSERT INTO faculties (id, name, color, version, updated_at) VALUES (?, ?, ?, 0, ?)",
+                    f, "Faculty " + f, colors[(f - 1) % colors.length], now);
+        }
+        int id = 1;
+        for (int f = 1; f <= FACULTIES; f++) {
+            for (int s = 0; s < STUDENTS_PER_FACULTY; s++, id++) {
+                jdbcTemplate.update("INSERT INTO students (id, name, age, faculty_id, version, updated_at) " +
+                        "VALUES (?, ?, ?, ?, 0, ?)", id, "Student " + id, 11 + id % 7, f, now);
+            }
+        }
+        byte[] data = new byte[AVATAR_SIZE];
+        for (int a = 1; a <= AVATARS; a++) {
+            jdbcTemplate.update("INSERT INTO avatars (id, file_path, file_size, media_type, data, student_id, version) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, 0)", a, "avatars/" + a + ".png", AVATAR_SIZE, "image/png", data, a * 3);
+        }
+    }
+
+    @ParameterizedTest(name = "GET {0}")
+    @MethodSource("budgets")
+    void shouldStayWithinQueryBudget(Budget budget) throws Exception {
+        MvcResult result = perform(budget.endpoint());
+
+        if (Boolean.getBoolean("school.budget.report")) {
+            logger.warn("Budget report: GET {} -> {} statements, {} rows", budget.endpoint(),
+                    result.getResponse().getHeader(QueryCountFilter.STATEMENTS_HEADER),
+                    result.getResponse().getHeader(QueryCountFilter.ROWS_HEADER));
+        }
+        statementCount(budget.statements()).match(result);
+        rowsFetched(budget.rows()).match(result);
+    }
+
+    @ParameterizedTest(name = "GET {0}")
+    @MethodSource("budgets")
+    @EnabledIfSystemProperty(named = "school.budget.allocation", matches = "true")
+    void shouldStayWithinAllocationBudget(Budget budget) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            perform(budget.endpoint());
+        }
+
+        long allocated = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long before = allocatedBytes();
+            perform(budget.endpoint());
+            allocated = Math.min(allocated, allocatedBytes() - before);
+        }
+
+        if (Boolean.getBoolean("school.budget.report")) {
+            logger.warn("Budget report: GET {} -> {} bytes", budget.endpoint(), allocated);
+        }
+        long allocatedBytes = allocated;
+        assertTrue(allocatedBytes <= budget.allocatedBytes(), () -> "GET " + budget.endpoint() + " allocated "
+                + allocatedBytes + " bytes, budget is " + budget.allocatedBytes());
+    }
+
+    private MvcResult perform(String endpoint) throws Exception {
+        eventPublisher.publishEvent(new ResyncRequiredEvent("budget measurement"));
+        return mockMvc.perform(MockMvcRequestBuilders.get(endpoint))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    record Budget(String endpoint, int statements, long rows, long allocatedBytes) {
+        @Override
+        public String toString() {
+            return endpoint;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package ru.hogwarts.school.performance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.FacultyViewRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.repository.StudentViewRepository;
+import ru.hogwarts.school.seed.DatasetSeeder;
+import ru.hogwarts.school.seed.SeedProperties;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every repository query against Postgres and checks its {@code EXPLAIN} plan: no
+ * sequential scan of a large table unless the query is expected to read the whole table,
+ * and an estimated total cost within the baseline below. The statements are the ones
+ * Hibernate actually sends, captured with their parameters, so a changed mapping, query
+ * or Liquibase index shows up here.
+ * <p>
+ * Needs a local Postgres and is skipped without one:
+ * <pre>
+ * mvn test -Dtest=QueryPlanTest -Dschool.plan.url=jdbc:postgresql://localhost:5432/hogwarts \
+ *     -Dschool.plan.username=student -Dschool.plan.password=chocolatefrog
+ * </pre>
+ * Everything happens in a separate {@value #SCHEMA} schema, migrated by Liquibase and seeded
+ * once with a fixed synthetic dataset, so the costs are comparable between runs. If a cost
+ * change is intended, re-run with {@code -Dschool.plan.report=true} and update the table.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "logging.level.ru.hogwarts.school=WARN",
+        "school.single-flight.enabled=false",
+        "school.warmup.enabled=false",
+        "school.coherence.enabled=false"
+})
+@EnabledIfSystemProperty(named = "school.plan.url", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanTest.class);
+
+    static final String SCHEMA = "school_plans";
+    static final int FACULTIES = 200;
+    static final int STUDENTS = 200_000;
+    static final long LARGE_TABLE_ROWS = 10_000;
+
+    private static final Set<String> NONE = Set.of();
+    private static final Set<String> STUDENTS_TABLE = Set.of("students");
+    private static final Set<String> AVATARS_TABLE = Set.of("avatars");
+
+    private static final long FACULTY_ID = 10;
+    private static final long STUDENT_ID = 1000;
+    private static final long AVATAR_ID = 1;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private AvatarRepository avatarRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<QueryInfo> captured = new ArrayList<>();
+    private final Map<String, Long> tableRows = new HashMap<>();
+    private volatile boolean capturing;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws SQLException {
+        String url = System.getProperty("school.plan.url");
+        String username = System.getProperty("school.plan.username", "student");
+        String password = System.getProperty("school.plan.password", "chocolatefrog");
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        }
+        registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+        registry.add("spring.datasource.username", () -> username);
+        registry.add("spring.datasource.password", () -> password);
+        registry.add("spring.liquibase.default-schema", () -> SCHEMA);
+    }
+
+    Stream<PlanCase> plans() {
+        return Stream.of(
+                //           query                                                      full scans                       cost  call
+                new PlanCase("StudentRepository.findByAge",                             STUDENTS_TABLE,                  7200, () -> studentRepository.findByAge(14)),
+                new PlanCase("StudentRepository.findByAgeBetween",                      STUDENTS_TABLE,                  9800, () -> studentRepository.findByAgeBetween(12, 13)),
+                new PlanCase("StudentRepository.getTotalNumberOfStudents",              STUDENTS_TABLE,                  5600, () -> studentRepository.getTotalNumberOfStudents()),
+                new PlanCase("StudentRepository.getAverageAge",                         STUDENTS_TABLE,                  5600, () -> studentRepository.getAverageAge()),
+                new PlanCase("StudentRepository.countByFacultyAndAge",                  STUDENTS_TABLE,                  6600, () -> studentRepository.countByFacultyAndAge()),
+                new PlanCase("StudentRepository.countByAgeInFaculty",                   NONE,                             200, () -> studentRepository.countByAgeInFaculty(FACULTY_ID)),
+                new PlanCase("StudentRepository.findFacultyPageOrderById",              NONE,                             140, () -> studentRepository.findFacultyPageOrderById(FACULTY_ID, 0L, Limit.of(50))),
+                new PlanCase("StudentRepository.findFacultyPageOrderByAge",             NONE,                             190, () -> studentRepository.findFacultyPageOrderByAge(FACULTY_ID, 14, STUDENT_ID, Limit.of(50))),
+                new PlanCase("StudentRepository.findFacultyPageOrderByName",            NONE,                             160, () -> studentRepository.findFacultyPageOrderByName(FACULTY_ID, "Harry Potter", 0L, Limit.of(50))),
+                new PlanCase("StudentRepository.findUnnamedFacultyPage",                NONE,                              12, () -> studentRepository.findUnnamedFacultyPage(FACULTY_ID, 0L, Limit.of(50))),
+                new PlanCase("StudentRepository.findLastFiveStudents",                  NONE,                            1100, () -> studentRepository.findLastFiveStudents()),
+                new PlanCase("StudentRepository.findVersionById",                       NONE,                              12, () -> studentRepository.findVersionById(STUDENT_ID)),
+                new PlanCase("StudentRepository.findVersionByFacultyId",                NONE,                            2900, () -> studentRepository.findVersionByFacultyId(FACULTY_ID)),
+                new PlanCase("StudentRepository.findVersionOfFacultyMembers",           STUDENTS_TABLE,                  6300, () -> studentRepository.findVersionOfFacultyMembers()),
+                new PlanCase("StudentRepository.findWithAvatarAfter",                   NONE,                              64, () -> studentRepository.findWithAvatarAfter(STUDENT_ID, Limit.of(50))),
+                new PlanCase("StudentRepository.findRosterAfter",                       NONE,                               8, () -> studentRepository.findRosterAfter(STUDENT_ID, Limit.of(50))),
+                new PlanCase("StudentRepository.streamRoster",                          Set.of("students", "avatars"), 17_800, () -> studentRepository.streamRoster()),
+                new PlanCase("StudentRepository.streamSnapshotRows",                    STUDENTS_TABLE,                  8900, () -> studentRepository.streamSnapshotRows()),
+                new PlanCase("StudentRepository.findSnapshotRowsByIdIn",                NONE,                              25, () -> studentRepository.findSnapshotRowsByIdIn(List.of(STUDENT_ID, STUDENT_ID - 1))),
+                new PlanCase("StudentViewRepository.findStudentViews",                  STUDENTS_TABLE,                  8900, () -> studentRepository.findStudentViews(List.of("id", "name"))),
+                new PlanCase("StudentViewRepository.findStudentViewsByFacultyIdIn",     NONE,                             900, () -> studentRepository.findStudentViewsByFacultyIdIn(List.of(FACULTY_ID, FACULTY_ID + 1), List.of("id", "name"))),
+                new PlanCase("FacultyRepository.findByColor",                           NONE,                             840, () -> facultyRepository.findByColor("red")),
+                new PlanCase("FacultyRepository.findByNameIgnoreCaseOrColorIgnoreCase", NONE,                             840, () -> facultyRepository.findByNameIgnoreCaseOrColorIgnoreCase("Gryffindor 1", "red")),
+                new PlanCase("FacultyRepository.findVersionById",                       NONE,                               9, () -> facultyRepository.findVersionById(FACULTY_ID)),
+                new PlanCase("FacultyRepository.findVersionOfAll",                      NONE,                              10, () -> facultyRepository.findVersionOfAll()),
+                new PlanCase("FacultyRepository.findSummariesByIdIn",                   NONE,                               9, () -> facultyRepository.findSummariesByIdIn(List.of(1L, 2L, FACULTY_ID))),
+                new PlanCase("FacultyRepository.findAllSummaries",                      NONE,                              17, () -> facultyRepository.findAllSummaries()),
+                new PlanCase("FacultyViewRepository.findFacultyViews",                  NONE,                              17, () -> facultyRepository.findFacultyViews(List.of("id", "name"))),
+                new PlanCase("AvatarRepository.findAll",                                AVATARS_TABLE,                   3400, () -> avatarRepository.findAll(PageRequest.of(0, 20))),
+                new PlanCase("AvatarRepository.findVersionById",                        NONE,                              12, () -> avatarRepository.findVersionById(AVATAR_ID)),
+                new PlanCase("AvatarRepository.findContentById",                        NONE,                              12, () -> avatarRepository.findContentById(AVATAR_ID)),
+                // a large faculty hashes all avatars, a small one probes avatars_student_id_key
+                new PlanCase("AvatarRepository.streamContentByFacultyId",               AVATARS_TABLE,                   2200, () -> avatarRepository.streamContentByFacultyId(FACULTY_ID))
+        );
+    }
+
+    @BeforeAll
+    void seedAndCapture() throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM students")) {
+            resultSet.next();
+            if (resultSet.getLong(1) != STUDENTS) {
+                SeedProperties seed = new SeedProperties();
+                seed.setFaculties(FACULTIES);
+                seed.setStudents(STUDENTS);
+                seed.setAvatarShare(0.05);
+                seed.setAvatarSizes(List.of("1KB:1"));
+                seed.setReplace(true);
+                seed.setExit(false);
+                new DatasetSeeder(seed, dataSource, null).run(null);
+            }
+        }
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT relname, reltuples::bigint FROM pg_class "
+                     + "WHERE relnamespace = '" + SCHEMA + "'::regnamespace AND relkind = 'r'")) {
+            while (resultSet.next()) {
+                tableRows.put(resultSet.getString(1), resultSet.getLong(2));
+            }
+        }
+
+        assertInstanceOf(ProxyDataSource.class, dataSource, "statements are captured through datasource-proxy");
+        ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener().addListener(new QueryExecutionListener() {
+            @Override
+            public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                if (capturing) {
+                    captured.addAll(queryInfoList);
+                }
+            }
+
+            @Override
+            public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            }
+        });
+    }
+
+    @Test
+    void everyRepositoryQueryShouldHavePlanCase() {
+        Set<String> covered = plans().map(PlanCase::query).collect(Collectors.toSet());
+        Set<String> missing = new TreeSet<>();
+        for (Class<?> repository : List.of(StudentRepository.class, StudentViewRepository.class,
+                FacultyRepository.class, FacultyViewRepository.class, AvatarRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                String query = repository.getSimpleName() + "." + method.getName();
+                if (!method.isSynthetic() && !covered.contains(query)) {
+                    missing.add(query);
+                }
+            }
+        }
+        assertEquals(Set.of(), missing, "repository queries without a plan case");
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("plans")
+    void shouldKeepPlanWithinBaseline(PlanCase plan) throws Exception {
+        List<QueryInfo> statements = capture(plan);
+        assertFalse(statements.isEmpty(), plan.query() + " issued no SQL");
+
+        double cost = 0;
+        List<String> scans = new ArrayList<>();
+        for (QueryInfo statement : statements) {
+            JsonNode root = explain(statement).get(0).get("Plan");
+            cost += root.get("Total Cost").asDouble();
+            collectSeqScans(root, scans);
+        }
+
+        if (Boolean.getBoolean("school.plan.report")) {
+            logger.warn("Plan report: {} -> cost {}, sequential scans {}, {}", plan.query(),
+                    (long) Math.ceil(cost), scans, statements.stream().map(QueryInfo::getQuery).toList());
+        }
+        List<String> unexpected = scans.stream()
+                .filter(table -> tableRows.getOrDefault(table, 0L) >= LARGE_TABLE_ROWS)
+                .filter(table -> !plan.fullScans().contains(table))
+                .toList();
+        assertEquals(List.of(), unexpected, () -> plan.query() + " scans " + unexpected + " sequentially: "
+                + statements.stream().map(QueryInfo::getQuery).toList());
+        double totalCost = cost;
+        assertTrue(totalCost <= plan.maxCost(), () -> plan.query() + " has estimated cost "
+                + (long) Math.ceil(totalCost) + ", baseline is " + plan.maxCost());
+    }
+
+    private List<QueryInfo> capture(PlanCase plan) {
+        captured.clear();
+        capturing = true;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try {
+            transaction.execute(status -> {
+                Object result = plan.call().get();
+                if (result instanceof Stream<?> stream) {
+                    // the query runs on the first read
+                    try (stream) {
+                        stream.findFirst();
+                    }
+                }
+                return null;
+            });
+        } finally {
+            capturing = false;
+        }
+        // repeated statements (lazy loads of the same association) have the same plan
+        Map<String, QueryInfo> distinct = new LinkedHashMap<>();
+        captured.forEach(statement -> distinct.putIfAbsent(statement.getQuery(), statement));
+        return List.copyOf(distinct.values());
+    }
+
+    private JsonNode explain(QueryInfo statement) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.getQuery())) {
+            if (!statement.getParametersList().isEmpty()) {
+                for (ParameterSetOperation parameter : statement.getParametersList().get(0)) {
+                    parameter.getMethod().invoke(explain, parameter.getArgs());
+                }
+            }
+            try (ResultSet resultSet = explain.executeQuery()) {
+                resultSet.next();
+                return objectMapper.readTree(resultSet.getString(1));
+            }
+        }
+    }
+
+    private static void collectSeqScans(JsonNode node, List<String> tables) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            tables.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, tables);
+        }
+    }
+
+    record PlanCase(String query, Set<String> fullScans, long maxCost, Supplier<Object> call) {
+        @Override
+        public String toString() {
+            return fullScans.isEmpty() ? query : query + " (scans " + String.join(", ", fullScans) + ")";
+        }
+    }
+}
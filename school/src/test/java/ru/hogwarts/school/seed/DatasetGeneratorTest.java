@@ -0,0 +1,87 @@
+package ru.hogwarts.school.seed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetGeneratorTest {
+
+    @Test
+    void shouldGenerateTheSameRowsForTheSameSeed() {
+        SeedProperties properties = properties(10, 500);
+
+        assertEquals(new DatasetGenerator(properties).students(1, 1).toList(),
+                new DatasetGenerator(properties).students(1, 1).toList());
+        assertEquals(new DatasetGenerator(properties).faculties(1).toList(),
+                new DatasetGenerator(properties).faculties(1).toList());
+        assertArrayEquals(avatarData(properties), avatarData(properties));
+
+        properties.setSeed(properties.getSeed() + 1);
+        assertNotEquals(new DatasetGenerator(properties(10, 500)).students(1, 1).toList(),
+                new DatasetGenerator(properties).students(1, 1).toList());
+    }
+
+    @Test
+    void shouldFollowConfiguredDistributions() {
+        SeedProperties properties = properties(20, 20_000);
+        List<DatasetGenerator.StudentRow> students = new DatasetGenerator(properties).students(101, 11).toList();
+
+        assertEquals(101, students.get(0).id());
+        assertTrue(students.stream().allMatch(s -> s.age() >= 11 && s.age() <= 18));
+        assertTrue(students.stream().allMatch(s -> s.facultyId() >= 11 && s.facultyId() < 31));
+
+        Map<Integer, Long> byAge = students.stream()
+                .collect(Collectors.groupingBy(DatasetGenerator.StudentRow::age, Collectors.counting()));
+        assertTrue(byAge.get(11) > 2 * byAge.get(18), "ages skew young: " + byAge);
+
+        Map<Long, Long> byFaculty = students.stream()
+                .collect(Collectors.groupingBy(DatasetGenerator.StudentRow::facultyId, Collectors.counting()));
+        assertTrue(byFaculty.get(11L) > 5 * byFaculty.get(30L), "faculty sizes follow Zipf: " + byFaculty);
+
+        long cyrillic = students.stream().filter(s -> Character.UnicodeBlock.of(s.name().charAt(0))
+                == Character.UnicodeBlock.CYRILLIC).count();
+        assertEquals(0.5, cyrillic / 20_000.0, 0.02);
+    }
+
+    @Test
+    void shouldSizeAvatarsFromHistogram() {
+        SeedProperties properties = properties(1, 4000);
+        properties.setAvatarShare(0.5);
+        properties.setAvatarSizes(List.of("1KB:3", "100KB:1"));
+
+        List<DatasetGenerator.AvatarRow> avatars = new DatasetGenerator(properties).avatars(1, 1).toList();
+
+        assertEquals(0.5, avatars.size() / 4000.0, 0.03);
+        assertTrue(avatars.stream().allMatch(a -> a.data().length == a.fileSize()));
+        Map<Boolean, Long> small = avatars.stream()
+                .collect(Collectors.partitioningBy(a -> a.fileSize() <= 1280, Collectors.counting()));
+        assertTrue(avatars.stream().allMatch(a -> a.fileSize() >= 768 && a.fileSize() <= 128_000));
+        assertEquals(0.75, small.get(true) / (double) avatars.size(), 0.04);
+        assertEquals(avatars.size(), avatars.stream().map(DatasetGenerator.AvatarRow::studentId)
+                .collect(Collectors.toMap(Function.identity(), id -> 1)).size());
+    }
+
+    private static byte[] avatarData(SeedProperties properties) {
+        return new DatasetGenerator(properties).avatars(1, 1)
+                .map(DatasetGenerator.AvatarRow::data)
+                .reduce(new byte[0], (a, b) -> {
+                    byte[] joined = Arrays.copyOf(a, a.length + b.length);
+                    System.arraycopy(b, 0, joined, a.length, b.length);
+                    return joined;
+                });
+    }
+
+    private static SeedProperties properties(int faculties, int students) {
+        SeedProperties properties = new SeedProperties();
+        properties.setFaculties(faculties);
+        properties.setStudents(students);
+        properties.setAvatarSizes(List.of("1KB:1"));
+        return properties;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.AgeDistribution;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeHistogramTest {
+
+    @Test
+    void shouldComputeNearestRankPercentiles() {
+        AgeHistogram histogram = new AgeHistogram();
+        histogram.add(11, 5);
+        histogram.add(12, 3);
+        histogram.add(14, 1);
+        histogram.add(17, 1);
+
+        AgeDistribution distribution = histogram.toDistribution(7L);
+
+        assertEquals(7L, distribution.facultyId());
+        assertEquals(10, distribution.students());
+        assertEquals(11, distribution.minAge());
+        assertEquals(17, distribution.maxAge());
+        assertEquals(12.2, distribution.averageAge(), 1e-9);
+        assertEquals(11, distribution.medianAge());
+        assertEquals(14, distribution.p90Age());
+        assertEquals(17, histogram.percentile(1.0));
+        assertEquals(List.of(11, 12, 14, 17), List.copyOf(distribution.histogram().keySet()));
+        assertNull(distribution.histogram().get(13));
+    }
+
+    @Test
+    void shouldKeepOneBucketForAnOutlyingAge() {
+        AgeHistogram histogram = new AgeHistogram();
+        histogram.add(12, 2);
+        histogram.add(Integer.MAX_VALUE, 1);
+        histogram.add(Integer.MIN_VALUE, 1);
+
+        AgeDistribution distribution = histogram.toDistribution(null);
+
+        assertEquals(List.of(Integer.MIN_VALUE, 12, Integer.MAX_VALUE), List.copyOf(distribution.histogram().keySet()));
+        assertEquals(Integer.MIN_VALUE, distribution.minAge());
+        assertEquals(Integer.MAX_VALUE, distribution.maxAge());
+        assertEquals(12, distribution.medianAge());
+    }
+
+    @Test
+    void shouldReturnEmptyStatisticsWithoutStudents() {
+        AgeDistribution distribution = new AgeHistogram().toDistribution(null);
+
+        assertEquals(0, distribution.students());
+        assertNull(distribution.medianAge());
+        assertEquals(Map.of(), distribution.histogram());
+    }
+}
@@ -0,0 +1,68 @@
+#!/bin/sh
+# Time-to-first-request before and after AOT + AppCDS.
+#
+#   mvn -Pfast-start clean package -DskipTests
+#   ./startup-benchmark.sh [runs] [url]
+#
+# Both variants start from the same target/fast-start layout so only AOT and the CDS
+# archive differ. Extra JVM flags (datasource overrides etc.) go in JAVA_OPTS, extra
+# jars in EXTRA_CP. The classpath matches the training run so the archive is accepted.
+# PROFILES must match -Dfast-start.profiles of the build (AOT fixes them), PORT is passed
+# as server.port, and a start that takes longer than TIMEOUT seconds is killed.
+RUNS=${1:-5}
+PROFILES=${PROFILES:-prod}
+PORT=${PORT:-8082}
+TIMEOUT=${TIMEOUT:-120}
+URL=${2:-http://localhost:$PORT/actuator/health}
+cd "$(dirname "$0")/target/fast-start" 2>/dev/null || { echo "Build first: mvn -Pfast-start package" >&2; exit 1; }
+JAR=$(ls *-fast-start.jar 2>/dev/null | head -1)
+MAIN=ru.hogwarts.school.SchoolApplication
+
+if [ -z "$JAR" ]; then
+  echo "Build first: mvn -Pfast-start package" >&2
+  exit 1
+fi
+CP="$JAR:lib/*${EXTRA_CP:+:$EXTRA_CP}"
+
+now_ms() {
+  date +%s%3N
+}
+
+measure() {
+  label=$1
+  shift
+  total=0
+  i=1
+  while [ "$i" -le "$RUNS" ]; do
+    start=$(now_ms)
+    deadline=$(( start + TIMEOUT * 1000 ))
+    java "$@" -Dspring.profiles.active="$PROFILES" -Dserver.port="$PORT" $JAVA_OPTS -cp "$CP" $MAIN \
+      > "benchmark-$label.log" 2>&1 &
+    pid=$!
+    until curl -sf -m 1 -o /dev/null "$URL"; do
+      if ! kill -0 "$pid" 2>/dev/null; then
+        echo "$label: application exited, see target/fast-start/benchmark-$label.log" >&2
+        exit 1
+      fi
+      if [ "$(now_ms)" -ge "$deadline" ]; then
+        kill "$pid" && wait "$pid" 2>/dev/null
+        echo "$label: $URL not up after ${TIMEOUT}s, see target/fast-start/benchmark-$label.log" >&2
+        exit 1
+      fi
+      sleep 0.05
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "$pid" && wait "$pid" 2>/dev/null
+    echo "$label run $i: ${elapsed} ms"
+    total=$(( total + elapsed ))
+    i=$(( i + 1 ))
+  done
+  echo "$label average: $(( total / RUNS )) ms"
+}
+
+measure baseline -Xshare:auto
+if [ -f school.jsa ]; then
+  measure aot-cds -XX:SharedArchiveFile=school.jsa -Dspring.aot.enabled=true
+else
+  measure aot -Dspring.aot.enabled=true
+fi